@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import db.DB;
+import model.dao.DaoFactory;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * In-memory H2 database in PostgreSQL mode standing in for the real server,
+ * seeded with the requested number of rows.
+ */
+public class BenchmarkDatabase {
+
+	public static final String URL = "jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+			+ "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+	public static void setUp(int departments, int sellers) throws IOException, SQLException {
+		if (System.getProperty("db.config") == null) {
+			Path config = Files.createTempFile("benchmark-db", ".properties");
+			config.toFile().deleteOnExit();
+
+			var props = new Properties();
+			props.setProperty("user", "sa");
+			props.setProperty("password", "");
+			props.setProperty("dburl", URL);
+			props.setProperty("pool.minSize", "2");
+			props.setProperty("pool.maxSize", "8");
+			props.setProperty("batchSize", "1000");
+			// H2 has no COPY, keep every load on the batched path
+			props.setProperty("copyThreshold", String.valueOf(Integer.MAX_VALUE));
+			try (OutputStream out = Files.newOutputStream(config)) {
+				props.store(out, "benchmark database");
+			}
+			System.setProperty("db.config", config.toString());
+		}
+
+		try (Connection conn = DB.getConnection(); Statement st = conn.createStatement()) {
+			st.execute("DROP TABLE IF EXISTS seller");
+			st.execute("DROP TABLE IF EXISTS department");
+			st.execute("CREATE TABLE department (id SERIAL PRIMARY KEY, name VARCHAR(60), "
+					+ "version INT NOT NULL DEFAULT 0)");
+			st.execute("CREATE TABLE seller (id SERIAL PRIMARY KEY, name VARCHAR(60) NOT NULL, "
+					+ "email VARCHAR(100) NOT NULL, birthDate DATE NOT NULL, baseSalary DOUBLE PRECISION NOT NULL, "
+					+ "departmentId INT NOT NULL REFERENCES department (id), version INT NOT NULL DEFAULT 0)");
+			st.execute("CREATE INDEX seller_department_idx ON seller (departmentId)");
+			st.execute("CREATE INDEX seller_name_id_idx ON seller (name, id)");
+		}
+
+		List<Department> deps = new ArrayList<>();
+		for (int i = 0; i < departments; i++) {
+			deps.add(new Department(null, "Department " + i));
+		}
+		DaoFactory.createDepartmentDao().insertAll(deps);
+
+		var sellerDao = DaoFactory.createSellerDao();
+		List<Seller> batch = new ArrayList<>();
+		for (int i = 0; i < sellers; i++) {
+			batch.add(newSeller(i, deps.get(i % deps.size())));
+			if (batch.size() == 10000) {
+				sellerDao.insertAll(batch);
+				batch.clear();
+			}
+		}
+		sellerDao.insertAll(batch);
+	}
+
+	public static Seller newSeller(int i, Department dep) {
+		return new Seller(null, "Seller " + i, "seller" + i + "@example.com", new Date(0L + i * 86400000L),
+				1000.0 + i % 5000, dep);
+	}
+
+	public static void tearDown() {
+		DB.closeConnection();
+	}
+}
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import gui.utils.CellFormats;
+import model.entities.Seller;
+
+/**
+ * Text work the seller table does per frame while scrolling: each operation
+ * renders the birth date and salary cells of one viewport, then moves the
+ * viewport down a few rows, wrapping at the end of the loaded rows. The
+ * JavaFX layout and paint are the same either way and are left out, so the
+ * difference is what the cell formatting adds to a frame. Run with -prof gc
+ * for the bytes allocated per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CellFormatBenchmark {
+
+	private static final int VISIBLE_ROWS = 30;
+
+	private static final int ROWS_PER_FRAME = 3;
+
+	@Param({ "1000", "10000" })
+	public int rows;
+
+	private List<Seller> sellers;
+
+	private int top;
+
+	// as the old cell factories did: one SimpleDateFormat per cell, String.format per update
+	private final SimpleDateFormat[] cellDateFormats = new SimpleDateFormat[VISIBLE_ROWS];
+
+	private Function<Date, String> dateFormat;
+
+	private Function<Double, String> salaryFormat;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var random = new Random(42);
+		sellers = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			var obj = new Seller();
+			obj.setId(i + 1);
+			obj.setBirthDate(new java.sql.Date(-631152000000L + random.nextInt(15000) * 86400000L));
+			obj.setBaseSalary(1000 + random.nextInt(900000) / 100.0);
+			sellers.add(obj);
+		}
+		for (int i = 0; i < VISIBLE_ROWS; i++) {
+			cellDateFormats[i] = new SimpleDateFormat("dd/MM/yyyy");
+		}
+		dateFormat = CellFormats.date("dd/MM/yyyy");
+		salaryFormat = CellFormats.decimal(2);
+	}
+
+	@Benchmark
+	public void formatPerUpdate(Blackhole bh) {
+		for (int i = 0; i < VISIBLE_ROWS; i++) {
+			Seller obj = sellers.get((top + i) % rows);
+			bh.consume(cellDateFormats[i].format(obj.getBirthDate()));
+			Locale.setDefault(Locale.US);
+			bh.consume(String.format("%." + 2 + "f", obj.getBaseSalary()));
+		}
+		scroll();
+	}
+
+	@Benchmark
+	public void cachedFormats(Blackhole bh) {
+		for (int i = 0; i < VISIBLE_ROWS; i++) {
+			Seller obj = sellers.get((top + i) % rows);
+			bh.consume(dateFormat.apply(obj.getBirthDate()));
+			bh.consume(salaryFormat.apply(obj.getBaseSalary()));
+		}
+		scroll();
+	}
+
+	private void scroll() {
+		top = (top + ROWS_PER_FRAME) % rows;
+	}
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Throughput and latency of the DepartmentDaoJDBC operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DepartmentDaoBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int tableSize;
+
+	private DepartmentDao dao;
+	private int next;
+	// versions of the seeded rows, update is compare-and-set on them
+	private int[] versions;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkDatabase.setUp(tableSize, 0);
+		dao = DaoFactory.createDepartmentDao();
+		versions = new int[tableSize + 1];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkDatabase.tearDown();
+	}
+
+	private int randomId() {
+		return ThreadLocalRandom.current().nextInt(1, tableSize + 1);
+	}
+
+	@Benchmark
+	public List<Department> findAll() {
+		return dao.findAll();
+	}
+
+	@Benchmark
+	public Department findById() {
+		return dao.findById(randomId());
+	}
+
+	@Benchmark
+	public void insertAndDelete() {
+		var obj = new Department(null, "Benchmark " + next++);
+		dao.insert(obj);
+		dao.deleteById(obj.getId());
+	}
+
+	@Benchmark
+	public Department update() {
+		int id = randomId();
+		var obj = new Department(id, "Renamed " + next++);
+		obj.setVersion(versions[id]);
+		dao.update(obj);
+		versions[id] = obj.getVersion();
+		return obj;
+	}
+}
@@ -0,0 +1,139 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Throughput and latency of the SellerDaoJDBC operations at several table
+ * sizes. insert grows the table while it runs; insertAndDelete keeps it
+ * stable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SellerDaoBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int tableSize;
+
+	private SellerDao dao;
+	private Department department;
+	private Seller middle;
+	private int next;
+	// versions of the seeded rows, update is compare-and-set on them
+	private int[] versions;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkDatabase.setUp(10, tableSize);
+		dao = DaoFactory.createSellerDao();
+		department = DaoFactory.createDepartmentDao().findById(1);
+		middle = dao.findById(tableSize / 2);
+		next = tableSize;
+		versions = new int[tableSize + 1];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkDatabase.tearDown();
+	}
+
+	private int randomId() {
+		return ThreadLocalRandom.current().nextInt(1, tableSize + 1);
+	}
+
+	@Benchmark
+	public List<Seller> findAll() {
+		return dao.findAll();
+	}
+
+	@Benchmark
+	public Seller findById() {
+		return dao.findById(randomId());
+	}
+
+	@Benchmark
+	public List<Seller> findByDepartment() {
+		return dao.findByDepartment(department);
+	}
+
+	@Benchmark
+	public List<Seller> findFirstPage() {
+		return dao.findPage(null, 100);
+	}
+
+	@Benchmark
+	public List<Seller> findMiddlePage() {
+		return dao.findPage(middle, 100);
+	}
+
+	@Benchmark
+	public void streamAll(Blackhole bh) {
+		try (var stream = dao.streamAll()) {
+			stream.forEach(bh::consume);
+		}
+	}
+
+	@Benchmark
+	public Seller insert() {
+		var obj = BenchmarkDatabase.newSeller(next++, department);
+		dao.insert(obj);
+		return obj;
+	}
+
+	@Benchmark
+	public void insertAndDelete() {
+		var obj = BenchmarkDatabase.newSeller(next++, department);
+		dao.insert(obj);
+		dao.deleteById(obj.getId());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void insertAllAndDelete() {
+		List<Seller> list = new ArrayList<>(1000);
+		for (int i = 0; i < 1000; i++) {
+			list.add(BenchmarkDatabase.newSeller(next++, department));
+		}
+		dao.insertAll(list);
+		for (Seller obj : list) {
+			dao.deleteById(obj.getId());
+		}
+	}
+
+	@Benchmark
+	public Seller update() {
+		int id = randomId();
+		var obj = BenchmarkDatabase.newSeller(next++, department);
+		obj.setId(id);
+		obj.setVersion(versions[id]);
+		dao.update(obj);
+		versions[id] = obj.getVersion();
+		return obj;
+	}
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Seller;
+
+/**
+ * Cost of turning seller rows into entities, per row. Run with -prof gc to
+ * get the allocation rate (gc.alloc.rate.norm is bytes per operation).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SellerMappingBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int rows;
+
+	private SellerDao dao;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkDatabase.setUp(10, rows);
+		dao = DaoFactory.createSellerDao();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkDatabase.tearDown();
+	}
+
+	@Benchmark
+	public List<Seller> mapPage() {
+		return dao.findPage(null, rows);
+	}
+
+	@Benchmark
+	public void mapStream(Blackhole bh) {
+		try (var stream = dao.streamAll()) {
+			stream.forEach(bh::consume);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.entities.Seller;
+import model.services.SellerService;
+
+/**
+ * SellerService reads, which go through the service cache, and a write that
+ * invalidates it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SellerServiceBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int tableSize;
+
+	private SellerService service;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		BenchmarkDatabase.setUp(10, tableSize);
+		service = new SellerService();
+		next = tableSize;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.println();
+		System.out.println("cache: " + SellerService.getCacheStats());
+		System.out.println("list cache: " + SellerService.getListCacheStats());
+		BenchmarkDatabase.tearDown();
+	}
+
+	@Benchmark
+	public Seller findById() {
+		return service.findById(ThreadLocalRandom.current().nextInt(1, tableSize + 1));
+	}
+
+	@Benchmark
+	public List<Seller> findFirstPage() {
+		return service.findPage(null, 100);
+	}
+
+	@Benchmark
+	public List<Seller> saveThenFindFirstPage() {
+		var obj = service.findById(1);
+		obj.setName("Seller " + next++);
+		service.saveOrUpdate(obj);
+		return service.findPage(null, 100);
+	}
+}
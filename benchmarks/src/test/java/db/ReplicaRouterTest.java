@@ -0,0 +1,164 @@
+package db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Routing against two in-memory H2 databases, one standing in for the
+ * primary and one for a replica. The WAL position functions the router
+ * polls are aliases returning the LSNs the tests set.
+ */
+public class ReplicaRouterTest {
+
+	private static final AtomicInteger databaseCount = new AtomicInteger();
+
+	private static volatile String primaryLsn;
+
+	private static volatile String replicaLsn;
+
+	private ConnectionPool primaryPool;
+
+	private TransactionManager primary;
+
+	private ReplicaRouter router;
+
+	public static String primaryLsn() {
+		return primaryLsn;
+	}
+
+	public static String replicaLsn() {
+		return replicaLsn;
+	}
+
+	@BeforeEach
+	public void setUp() throws SQLException {
+		primaryLsn = "0/10";
+		replicaLsn = "0/10";
+		int n = databaseCount.incrementAndGet();
+		String primaryUrl = "jdbc:h2:mem:primary" + n + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+		String replicaUrl = "jdbc:h2:mem:replica" + n + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+		createDatabase(primaryUrl, "primary", "pg_current_wal_lsn", "primaryLsn");
+		createDatabase(replicaUrl, "replica", "pg_last_wal_replay_lsn", "replicaLsn");
+
+		var props = new Properties();
+		props.setProperty("user", "sa");
+		props.setProperty("password", "");
+		props.setProperty("pool.minSize", "1");
+		props.setProperty("replica.maxLag", "5000");
+		props.setProperty("replica.checkInterval", "20");
+		primaryPool = new ConnectionPool(primaryUrl, props);
+		primary = new TransactionManager(primaryPool);
+		router = new ReplicaRouter(primary, List.of(replicaUrl), props);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		router.close();
+		primaryPool.close();
+	}
+
+	@Test
+	public void readAfterWriteGoesToPrimaryUntilReplicaCatchesUp() throws Exception {
+		awaitReadsFrom("replica");
+
+		write();
+		assertEquals("primary", readFrom(router));
+		// several checks later the replica is still behind the write
+		Thread.sleep(200);
+		assertEquals("primary", readFrom(router));
+
+		replicaLsn = primaryLsn;
+		awaitReadsFrom("replica");
+	}
+
+	@Test
+	public void readsInTransactionGoToPrimary() throws Exception {
+		awaitReadsFrom("replica");
+
+		String inTransaction = primary.inTransaction(() -> {
+			try {
+				return readFrom(router);
+			} catch (SQLException e) {
+				throw new DbException(e);
+			}
+		});
+		assertEquals("primary", inTransaction);
+		assertEquals("replica", readFrom(router));
+	}
+
+	@Test
+	public void writeInTransactionHoldsReadsUntilReplicaCatchesUp() throws Exception {
+		awaitReadsFrom("replica");
+
+		primary.inTransaction(() -> {
+			try {
+				write();
+			} catch (SQLException e) {
+				throw new DbException(e);
+			}
+		});
+		Thread.sleep(100);
+		assertEquals("primary", readFrom(router));
+
+		replicaLsn = primaryLsn;
+		awaitReadsFrom("replica");
+	}
+
+	@Test
+	public void comparesLsnsByBothHalves() {
+		assertTrue(ReplicaRouter.compareLsn("0/FF", "1/0") < 0);
+		assertTrue(ReplicaRouter.compareLsn("1/A0", "1/9F") > 0);
+		assertEquals(0, ReplicaRouter.compareLsn("16/B374D848", "16/B374D848"));
+	}
+
+	// commits advance the primary's WAL, the replica replays it later
+	private void write() throws SQLException {
+		try (Connection conn = router.getWriteDataSource().getConnection(); Statement st = conn.createStatement()) {
+			st.executeUpdate("UPDATE whoami SET writes = writes + 1");
+			primaryLsn = "0/" + Integer.toHexString(Integer.parseInt(primaryLsn.substring(2), 16) + 0x10);
+		}
+	}
+
+	private void awaitReadsFrom(String expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		String actual;
+		while (!(actual = readFrom(router)).equals(expected)) {
+			assertTrue(System.currentTimeMillis() < deadline, "reads still go to " + actual);
+			Thread.sleep(10);
+		}
+	}
+
+	private static String readFrom(DataSource dataSource) throws SQLException {
+		try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement();
+				ResultSet result = st.executeQuery("SELECT name FROM whoami")) {
+			result.next();
+			return result.getString(1);
+		}
+	}
+
+	private static void createDatabase(String url, String name, String lsnFunction, String lsnMethod)
+			throws SQLException {
+		try (Connection conn = DriverManager.getConnection(url, "sa", "");
+				Statement st = conn.createStatement()) {
+			st.execute("CREATE TABLE whoami (name VARCHAR(10), writes INT)");
+			st.execute("INSERT INTO whoami VALUES ('" + name + "', 0)");
+			st.execute("CREATE ALIAS " + lsnFunction + " FOR \"" + ReplicaRouterTest.class.getName() + "."
+					+ lsnMethod + "\"");
+		}
+	}
+}
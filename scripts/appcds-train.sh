@@ -0,0 +1,20 @@
+#!/bin/sh
+# Training run for an AppCDS archive: starts the application with
+# -Dstartup.train=true, which opens the seller and department lists and
+# exits, and dumps the classes it loaded to app.jsa. Needs JDK 13 or newer.
+#
+#   JAVAFX_LIB   JavaFX SDK lib directory
+#   PG_JDBC      PostgreSQL JDBC driver jar
+#   APP_CLASSES  compiled classes and resources (default: bin)
+#
+# Launches must use the same class path and module path as the training
+# run, see run.sh. Retrain after every rebuild.
+set -e
+cd "$(dirname "$0")/.."
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the JavaFX SDK lib directory}"
+: "${PG_JDBC:?set PG_JDBC to the PostgreSQL JDBC driver jar}"
+APP_CLASSES="${APP_CLASSES:-bin}"
+
+java -XX:ArchiveClassesAtExit=app.jsa -Dstartup.train=true \
+	--module-path "$JAVAFX_LIB" --add-modules javafx.controls,javafx.fxml \
+	-cp "$APP_CLASSES:$PG_JDBC" application.Main
@@ -0,0 +1,18 @@
+#!/bin/sh
+# Starts the application, using the AppCDS archive from appcds-train.sh
+# when there is one. Same variables as appcds-train.sh.
+set -e
+cd "$(dirname "$0")/.."
+: "${JAVAFX_LIB:?set JAVAFX_LIB to the JavaFX SDK lib directory}"
+: "${PG_JDBC:?set PG_JDBC to the PostgreSQL JDBC driver jar}"
+APP_CLASSES="${APP_CLASSES:-bin}"
+
+CDS=""
+if [ -f app.jsa ]; then
+	# a stale archive is ignored with a warning, not an error
+	CDS="-XX:SharedArchiveFile=app.jsa -Xshare:auto"
+fi
+
+exec java $CDS \
+	--module-path "$JAVAFX_LIB" --add-modules javafx.controls,javafx.fxml \
+	-cp "$APP_CLASSES:$PG_JDBC" application.Main "$@"
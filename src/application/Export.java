@@ -0,0 +1,40 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import db.DB;
+import model.services.ExportService;
+import model.services.ServiceExecutor;
+
+/**
+ * Headless export for scheduled jobs:
+ * <pre>
+ * java application.Export sellers|departments &lt;file.csv|file.json[.gz]&gt;
+ * </pre>
+ */
+public class Export {
+
+	public static void main(String[] args) {
+		if (args.length != 2 || !(args[0].equals("sellers") || args[0].equals("departments"))) {
+			System.err.println("Usage: Export sellers|departments <file.csv|file.json[.gz]>");
+			System.exit(2);
+		}
+		var file = Path.of(args[1]);
+		var service = new ExportService();
+		int status = 0;
+		try {
+			long start = System.nanoTime();
+			long rows = args[0].equals("sellers") ? service.exportSellers(file) : service.exportDepartments(file);
+			System.out.printf("Exported %d %s to %s in %d ms%n", rows, args[0], file,
+					(System.nanoTime() - start) / 1_000_000);
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Export failed: " + e.getMessage());
+			status = 1;
+		} finally {
+			ServiceExecutor.shutdown();
+			DB.closeConnection();
+		}
+		System.exit(status);
+	}
+}
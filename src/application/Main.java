@@ -2,11 +2,24 @@ package application;
 
 import java.io.IOException;
 
+import db.DB;
+import gui.controllers.MainViewController;
+import gui.utils.Alerts;
+import gui.utils.Utils;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import model.services.ChangeFeedService;
+import model.services.LocalStore;
+import model.services.ServiceExecutor;
 
 public class Main extends Application {
 	
@@ -14,6 +27,9 @@ public class Main extends Application {
 	
 	@Override
 	public void start(Stage primaryStage) {
+		Startup.mark("JavaFX started");
+		Stage splash = showSplash();
+		
 		try {
 			var loader = new FXMLLoader(getClass().getResource("/gui/views/MainView.fxml"));
 			ScrollPane scrollPane = loader.load();
@@ -24,12 +40,44 @@ public class Main extends Application {
 			mainScene = new Scene(scrollPane);
 			primaryStage.setScene(mainScene);
 			primaryStage.setTitle("Sample JavaFX application");
-			primaryStage.show();
+			
+			MainViewController controller = loader.getController();
+			Utils.onFxThread(Startup.warmUp(), x -> show(primaryStage, splash, controller), e -> {
+				show(primaryStage, splash, controller);
+				Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+			});
 		} catch (IOException e) {
+			splash.close();
 			e.printStackTrace();
 		}
 	}
 	
+	private static Stage showSplash() {
+		var box = new VBox(10, new ProgressIndicator(), new Label("Starting..."));
+		box.setPadding(new Insets(20));
+		var splash = new Stage(StageStyle.UNDECORATED);
+		splash.setScene(new Scene(box));
+		splash.show();
+		return splash;
+	}
+	
+	private static void show(Stage primaryStage, Stage splash, MainViewController controller) {
+		primaryStage.show();
+		splash.close();
+		Startup.mark("Main window shown");
+		if (Startup.isTraining()) {
+			Startup.train(controller);
+		}
+	}
+	
+	@Override
+	public void stop() {
+		ChangeFeedService.stop();
+		LocalStore.close();
+		ServiceExecutor.shutdown();
+		DB.closeConnection();
+	}
+	
 	public static Scene getMainScene() {
 		return mainScene;
 	}
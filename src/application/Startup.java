@@ -0,0 +1,144 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import db.DB;
+import db.DbException;
+import db.Migrations;
+import gui.controllers.MainViewController;
+import gui.controllers.SellerListController;
+import gui.utils.Alerts;
+import javafx.application.Platform;
+import javafx.scene.control.Alert.AlertType;
+import model.services.ChangeFeedService;
+import model.services.DepartmentService;
+import model.services.LocalStore;
+import model.services.SellerService;
+import model.services.ServiceExecutor;
+
+/**
+ * Startup work that would otherwise land on the first menu click: opening
+ * the pool (driver loading and handshakes), migrating, prefetching the
+ * departments and the first seller page, and parsing the list views. The
+ * database chain and the view parsing run in parallel behind the splash.
+ * When the local store has a saved copy the splash only waits for the pool
+ * and the views; the lists render from the copy while the rest goes on.
+ * <p>
+ * Milestones are measured from JVM start and shown in the Diagnostics view
+ * once the first table has rows; -Dstartup.report=true prints them too. With
+ * -Dstartup.train=true the application opens both lists, prints them and
+ * exits, a training run for an AppCDS archive (see scripts/appcds-train.sh).
+ */
+public class Startup {
+
+	private static final Map<String, Long> milestones = new LinkedHashMap<>();
+
+	private static final Deque<Runnable> trainingSteps = new ArrayDeque<>();
+
+	private static boolean firstTableShown;
+
+	public static boolean isTraining() {
+		return Boolean.getBoolean("startup.train");
+	}
+
+	/**
+	 * Runs the warm-up, once per session.
+	 */
+	public static CompletableFuture<Void> warmUp() {
+		CompletableFuture<Boolean> local = CompletableFuture.supplyAsync(() -> {
+			LocalStore.open();
+			mark("Local store loaded");
+			return LocalStore.isReady();
+		}, ServiceExecutor.get());
+		CompletableFuture<Void> pool = CompletableFuture.runAsync(() -> {
+			DB.getTransactionManager();
+			mark("Pool open");
+		}, ServiceExecutor.get());
+		CompletableFuture<Void> database = CompletableFuture.allOf(local, pool).thenRunAsync(() -> {
+			try {
+				Migrations.migrate();
+			} catch (DbException e) {
+				throw new DbException("Could not migrate the database schema: " + e.getMessage());
+			}
+			mark("Schema migrated");
+			ChangeFeedService.start();
+			LocalStore store = LocalStore.get();
+			if (store != null) {
+				store.startSync();
+			}
+		}, ServiceExecutor.get());
+		CompletableFuture<Void> views = MainViewController.preloadViews()
+				.thenRun(() -> mark("Views parsed"));
+
+		return local.thenCompose(ready -> {
+			if (ready) {
+				// the lists render from the saved copy, the schema and the sync catch up behind the main window
+				database.whenComplete((x, e) -> {
+					if (e != null) {
+						Platform.runLater(() -> Alerts.showAlert("Database Error", null, causeOf(e).getMessage(),
+								AlertType.ERROR));
+					}
+				});
+				return CompletableFuture.allOf(pool, views);
+			}
+			CompletableFuture<Void> departments = database.thenRunAsync(() -> new DepartmentService().findAll(),
+					ServiceExecutor.get());
+			CompletableFuture<Void> sellers = database.thenRunAsync(
+					() -> new SellerService().findPage(null, SellerListController.PAGE_SIZE), ServiceExecutor.get());
+			// allOf waits for all of them, so the splash never closes on a half-done warm-up
+			return CompletableFuture.allOf(departments, sellers, views);
+		}).thenRun(() -> mark("Warm-up done"));
+	}
+
+	private static Throwable causeOf(Throwable e) {
+		return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+	}
+
+	public static synchronized void mark(String milestone) {
+		milestones.putIfAbsent(milestone, ManagementFactory.getRuntimeMXBean().getUptime());
+	}
+
+	/**
+	 * Called by the list views each time they fill their table. The first
+	 * call closes the measurement; in a training run each call moves on to
+	 * the next step.
+	 */
+	public static void tableShown() {
+		synchronized (Startup.class) {
+			if (!firstTableShown) {
+				firstTableShown = true;
+				mark("First table");
+				if (isTraining() || Boolean.getBoolean("startup.report")) {
+					System.out.println(report());
+				}
+			}
+		}
+		Runnable next = trainingSteps.poll();
+		if (next != null) {
+			Platform.runLater(next);
+		}
+	}
+
+	static void train(MainViewController controller) {
+		trainingSteps.add(controller::onMenuItemDepartmentAction);
+		trainingSteps.add(Platform::exit);
+		controller.onMenuItemSellerAction();
+	}
+
+	public static synchronized Long getTimeToFirstTable() {
+		return milestones.get("First table");
+	}
+
+	public static synchronized String report() {
+		var sb = new StringBuilder("Startup (ms since JVM start):");
+		milestones.forEach((milestone, millis) -> sb.append(' ').append(milestone).append(' ').append(millis).append(','));
+		sb.setLength(sb.length() - 1);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,261 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Listens on the data_change channel the V6 triggers notify and hands the
+ * changes to the registered listeners, on the feed's own thread.
+ * <p>
+ * The feed holds a dedicated connection outside the pool, since a LISTEN
+ * only lasts as long as its session. When that connection is lost the feed
+ * reconnects and reports a RELOAD for every table, as notifications sent in
+ * between are gone.
+ */
+public class ChangeFeed {
+
+	public static final String CHANNEL = "data_change";
+
+	private static final String[] TABLES = { "seller", "department" };
+
+	private static final int POLL_TIMEOUT = 500;
+
+	private static final long KEEPALIVE_INTERVAL = 30000;
+
+	private static final long MAX_RECONNECT_DELAY = 30000;
+
+	public interface Listener {
+		void onChanges(List<Change> changes);
+	}
+
+	private final String url;
+
+	private final Properties driverProps;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile boolean running;
+
+	private Thread thread;
+
+	public ChangeFeed(String url, Properties props) {
+		this.url = url;
+		this.driverProps = ConnectionPool.driverProperties(props);
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		thread = new Thread(this::run, "change-feed");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void stop() {
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+		}
+	}
+
+	private void run() {
+		long delay = 1000;
+		boolean missedChanges = false;
+		while (running) {
+			Connection conn = null;
+			try {
+				conn = DriverManager.getConnection(url, driverProps);
+				execute(conn, "LISTEN " + CHANNEL);
+				delay = 1000;
+				if (missedChanges) {
+					publish(reloadAll());
+				}
+				listen(conn);
+			}
+			catch (SQLException e) {
+				if (!running) {
+					break;
+				}
+				missedChanges = true;
+				QueryMetrics.warning("Change feed disconnected, retrying in " + delay + " ms: " + e.getMessage());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					break;
+				}
+				delay = Math.min(delay * 2, MAX_RECONNECT_DELAY);
+			}
+			finally {
+				closeQuietly(conn);
+			}
+		}
+	}
+
+	private void listen(Connection conn) throws SQLException {
+		PGConnection pgConn = conn.unwrap(PGConnection.class);
+		long lastActivity = System.currentTimeMillis();
+		while (running) {
+			PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT);
+			long now = System.currentTimeMillis();
+			if (notifications != null && notifications.length > 0) {
+				lastActivity = now;
+				publish(parse(notifications));
+			} else if (now - lastActivity > KEEPALIVE_INTERVAL) {
+				// an idle socket does not notice a dead server, a round trip does
+				execute(conn, "SELECT 1");
+				lastActivity = now;
+			}
+		}
+	}
+
+	private void publish(List<Change> changes) {
+		if (changes.isEmpty()) {
+			return;
+		}
+		for (Listener listener : listeners) {
+			try {
+				listener.onChanges(changes);
+			} catch (RuntimeException e) {
+				// one failing listener must not stop the feed
+				QueryMetrics.warning("Change feed listener failed: " + e, e);
+			}
+		}
+	}
+
+	// a statement touching the same row twice notifies twice, one change is enough
+	private static List<Change> parse(PGNotification[] notifications) {
+		Set<Change> changes = new LinkedHashSet<>();
+		for (PGNotification notification : notifications) {
+			if (!CHANNEL.equals(notification.getName())) {
+				continue;
+			}
+			Change change = Change.parse(notification.getParameter());
+			if (change != null) {
+				changes.add(change);
+			}
+		}
+		return new ArrayList<>(changes);
+	}
+
+	private static List<Change> reloadAll() {
+		List<Change> changes = new ArrayList<>();
+		for (String table : TABLES) {
+			changes.add(new Change(table, Change.Type.RELOAD, null));
+		}
+		return changes;
+	}
+
+	private static void execute(Connection conn, String sql) throws SQLException {
+		Statement st = conn.createStatement();
+		try {
+			st.execute(sql);
+		}
+		finally {
+			DB.closeStatement(st);
+		}
+	}
+
+	private static void closeQuietly(Connection conn) {
+		if (conn != null) {
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				// the connection is already broken
+			}
+		}
+	}
+
+	/**
+	 * One changed row, or a whole table to reload when a statement touched
+	 * too many rows to list them. The id is null for RELOAD.
+	 */
+	public static class Change {
+
+		public enum Type {
+			INSERT, UPDATE, DELETE, RELOAD
+		}
+
+		private final String table;
+		private final Type type;
+		private final Integer id;
+
+		public Change(String table, Type type, Integer id) {
+			this.table = table;
+			this.type = type;
+			this.id = id;
+		}
+
+		// payloads are table:OP:id or table:RELOAD
+		static Change parse(String payload) {
+			if (payload == null) {
+				return null;
+			}
+			String[] parts = payload.split(":");
+			try {
+				Type type = Type.valueOf(parts[1]);
+				if (type == Type.RELOAD) {
+					return new Change(parts[0], type, null);
+				}
+				return new Change(parts[0], type, Integer.valueOf(parts[2]));
+			} catch (RuntimeException e) {
+				QueryMetrics.warning("Ignoring malformed change notification: " + payload);
+				return null;
+			}
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(table, type, id);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			Change other = (Change) obj;
+			return table.equals(other.table) && type == other.type && Objects.equals(id, other.id);
+		}
+
+		@Override
+		public String toString() {
+			return table + ":" + type + (id == null ? "" : ":" + id);
+		}
+	}
+}
@@ -0,0 +1,523 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Small bounded connection pool. Connections handed out are proxies whose
+ * close() returns the physical connection to the pool.
+ */
+public class ConnectionPool implements DataSource {
+
+	private static final String DRIVER_PREFIX = "driver.";
+
+	private final String url;
+	private final Properties driverProps;
+
+	private final int minSize;
+	private final int maxSize;
+	private final long borrowTimeoutMillis;
+	private final int validationTimeoutSeconds;
+	private final long validationIntervalMillis;
+	private final long idleTimeoutMillis;
+	private final long leakDetectionMillis;
+	private final int statementCacheSize;
+
+	private final Semaphore permits;
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private final Set<Lease> borrowed = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService housekeeper;
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong statementEvictions = new AtomicLong();
+
+	private int openCount;
+	private volatile boolean closed;
+
+	public ConnectionPool(String url, Properties props) {
+		this.url = url;
+		this.driverProps = driverProperties(props);
+
+		minSize = intProperty(props, "pool.minSize", 1);
+		maxSize = Math.max(minSize, intProperty(props, "pool.maxSize", 10));
+		borrowTimeoutMillis = intProperty(props, "pool.borrowTimeout", 30000);
+		validationTimeoutSeconds = intProperty(props, "pool.validationTimeout", 5);
+		validationIntervalMillis = intProperty(props, "pool.validationInterval", 5000);
+		idleTimeoutMillis = intProperty(props, "pool.idleTimeout", 600000);
+		leakDetectionMillis = intProperty(props, "pool.leakDetectionThreshold", 0);
+		statementCacheSize = intProperty(props, "pool.statementCacheSize", 50);
+
+		permits = new Semaphore(maxSize, true);
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "db-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			fillToMinimum();
+		} catch (DbException e) {
+			// no thread started yet, this closes the connections opened before the failure
+			close();
+			throw e;
+		}
+		housekeeper.scheduleWithFixedDelay(this::housekeep, 30, 30, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * The credentials and the driver.* keys, with the prefix stripped. The
+	 * rest of db.properties configures the application, not the driver.
+	 */
+	static Properties driverProperties(Properties props) {
+		var driverProps = new Properties();
+		for (String key : List.of("user", "password")) {
+			if (props.getProperty(key) != null) {
+				driverProps.setProperty(key, props.getProperty(key));
+			}
+		}
+		for (String key : props.stringPropertyNames()) {
+			if (key.startsWith(DRIVER_PREFIX) && key.length() > DRIVER_PREFIX.length()) {
+				driverProps.setProperty(key.substring(DRIVER_PREFIX.length()), props.getProperty(key));
+			}
+		}
+		return driverProps;
+	}
+
+	static int intProperty(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new DbException("Invalid value for " + key + ": " + value);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+		long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				timeoutCount.incrementAndGet();
+				throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a connection");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		recordWait(System.nanoTime() - start);
+
+		try {
+			PooledConnection pooled = takeValidIdle();
+			if (pooled == null) {
+				pooled = open();
+			}
+			var lease = new Lease(pooled);
+			borrowed.add(lease);
+			borrowCount.incrementAndGet();
+			return lease.proxy;
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Credentials are configured in db.properties");
+	}
+
+	private void recordWait(long nanos) {
+		totalWaitNanos.addAndGet(nanos);
+		maxWaitNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	private PooledConnection takeValidIdle() {
+		while (true) {
+			PooledConnection pooled;
+			synchronized (idle) {
+				pooled = idle.pollFirst();
+			}
+			if (pooled == null) {
+				return null;
+			}
+			if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis || isValid(pooled)) {
+				return pooled;
+			}
+			discard(pooled);
+		}
+	}
+
+	private boolean isValid(PooledConnection pooled) {
+		try {
+			return pooled.physical.isValid(validationTimeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private PooledConnection open() throws SQLException {
+		var physical = DriverManager.getConnection(url, driverProps);
+		synchronized (idle) {
+			openCount++;
+		}
+		var pooled = new PooledConnection(physical);
+		if (statementCacheSize > 0) {
+			pooled.statements = new StatementCache(physical, statementCacheSize, statementHits, statementMisses,
+					statementEvictions);
+		}
+		return pooled;
+	}
+
+	private void discard(PooledConnection pooled) {
+		synchronized (idle) {
+			openCount--;
+		}
+		try {
+			pooled.close();
+		} catch (SQLException e) {
+			// the connection is being thrown away anyway
+		}
+	}
+
+	private void release(Lease lease) {
+		borrowed.remove(lease);
+		PooledConnection pooled = lease.pooled;
+		// statements the borrower forgot to close go back to the cache
+		lease.checkedOut.forEach(StatementCache.CachedStatement::giveBack);
+		try {
+			if (closed || pooled.physical.isClosed()) {
+				discard(pooled);
+				return;
+			}
+			if (!pooled.physical.getAutoCommit()) {
+				pooled.physical.rollback();
+				pooled.physical.setAutoCommit(true);
+			}
+			pooled.lastUsed = System.currentTimeMillis();
+			synchronized (idle) {
+				idle.addFirst(pooled);
+			}
+		} catch (SQLException e) {
+			discard(pooled);
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void fillToMinimum() {
+		try {
+			while (true) {
+				synchronized (idle) {
+					if (openCount >= minSize) {
+						return;
+					}
+				}
+				var pooled = open();
+				pooled.lastUsed = System.currentTimeMillis();
+				synchronized (idle) {
+					idle.addLast(pooled);
+				}
+			}
+		} catch (SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+
+		synchronized (idle) {
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext() && openCount > minSize) {
+				var pooled = it.next();
+				if (now - pooled.lastUsed > idleTimeoutMillis) {
+					it.remove();
+					openCount--;
+					try {
+						pooled.close();
+					} catch (SQLException e) {
+						// evicted either way
+					}
+				}
+			}
+		}
+
+		if (leakDetectionMillis > 0) {
+			for (Lease lease : borrowed) {
+				if (!lease.reported && now - lease.borrowedAt > leakDetectionMillis) {
+					lease.reported = true;
+					leakCount.incrementAndGet();
+					QueryMetrics.warning("Possible connection leak: " + lease.pooled.physical + " held by "
+							+ lease.borrowThread + " for " + (now - lease.borrowedAt) + " ms (threshold "
+							+ leakDetectionMillis + " ms)", lease.borrowTrace);
+				}
+			}
+		}
+
+		if (!closed) {
+			try {
+				fillToMinimum();
+			} catch (DbException e) {
+				// database unreachable, try again on the next run
+			}
+		}
+	}
+
+	public void close() {
+		closed = true;
+		housekeeper.shutdownNow();
+		synchronized (idle) {
+			for (PooledConnection pooled : idle) {
+				try {
+					pooled.close();
+				} catch (SQLException e) {
+					// closing anyway
+				}
+			}
+			openCount -= idle.size();
+			idle.clear();
+		}
+	}
+
+	public Stats getStats() {
+		synchronized (idle) {
+			return new Stats(openCount, idle.size(), borrowed.size(), permits.getQueueLength(), borrowCount.get(),
+					timeoutCount.get(), totalWaitNanos.get(), maxWaitNanos.get(), leakCount.get(),
+					statementHits.get(), statementMisses.get(), statementEvictions.get());
+		}
+	}
+
+	private static class PooledConnection {
+		final Connection physical;
+		StatementCache statements;
+		volatile long lastUsed;
+
+		PooledConnection(Connection physical) {
+			this.physical = physical;
+		}
+
+		void close() throws SQLException {
+			if (statements != null) {
+				statements.closeAll();
+			}
+			physical.close();
+		}
+	}
+
+	private class Lease implements InvocationHandler {
+		final PooledConnection pooled;
+		final Connection proxy;
+		final long borrowedAt = System.currentTimeMillis();
+		final Throwable borrowTrace;
+		final String borrowThread = Thread.currentThread().getName();
+		volatile boolean reported;
+		final List<StatementCache.CachedStatement> checkedOut = new ArrayList<>();
+		private boolean returned;
+
+		Lease(PooledConnection pooled) {
+			this.pooled = pooled;
+			this.borrowTrace = leakDetectionMillis > 0 ? new Throwable("Connection borrowed here") : null;
+			this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!returned) {
+					returned = true;
+					release(this);
+				}
+				return null;
+			case "isClosed":
+				return returned || pooled.physical.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled[" + pooled.physical + "]";
+			default:
+				if (returned) {
+					throw new SQLException("Connection has already been returned to the pool");
+				}
+				if (pooled.statements != null && StatementCache.isCacheable(method, args)) {
+					return pooled.statements.prepare(method, args, this.proxy, checkedOut);
+				}
+				try {
+					return method.invoke(pooled.physical, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+
+	public static class Stats {
+		private final int total;
+		private final int idle;
+		private final int active;
+		private final int waiting;
+		private final long borrowCount;
+		private final long timeoutCount;
+		private final long totalWaitNanos;
+		private final long maxWaitNanos;
+		private final long leakCount;
+		private final long statementHits;
+		private final long statementMisses;
+		private final long statementEvictions;
+
+		public Stats(int total, int idle, int active, int waiting, long borrowCount, long timeoutCount,
+				long totalWaitNanos, long maxWaitNanos, long leakCount, long statementHits, long statementMisses,
+				long statementEvictions) {
+			this.total = total;
+			this.idle = idle;
+			this.active = active;
+			this.waiting = waiting;
+			this.borrowCount = borrowCount;
+			this.timeoutCount = timeoutCount;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.leakCount = leakCount;
+			this.statementHits = statementHits;
+			this.statementMisses = statementMisses;
+			this.statementEvictions = statementEvictions;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public int getIdle() {
+			return idle;
+		}
+
+		public int getActive() {
+			return active;
+		}
+
+		public int getWaiting() {
+			return waiting;
+		}
+
+		public long getBorrowCount() {
+			return borrowCount;
+		}
+
+		public long getTimeoutCount() {
+			return timeoutCount;
+		}
+
+		public double getAverageWaitMillis() {
+			return borrowCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrowCount;
+		}
+
+		public double getMaxWaitMillis() {
+			return maxWaitNanos / 1_000_000.0;
+		}
+
+		public long getLeakCount() {
+			return leakCount;
+		}
+
+		public long getStatementHits() {
+			return statementHits;
+		}
+
+		public long getStatementMisses() {
+			return statementMisses;
+		}
+
+		public long getStatementEvictions() {
+			return statementEvictions;
+		}
+
+		public double getStatementHitRate() {
+			long total = statementHits + statementMisses;
+			return total == 0 ? 0.0 : (double) statementHits / total;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats [total=" + total + ", idle=" + idle + ", active=" + active + ", waiting=" + waiting
+					+ ", borrowCount=" + borrowCount + ", timeoutCount=" + timeoutCount + ", averageWaitMillis="
+					+ getAverageWaitMillis() + ", maxWaitMillis=" + getMaxWaitMillis() + ", leakCount=" + leakCount
+					+ ", statementHits=" + statementHits + ", statementMisses=" + statementMisses
+					+ ", statementEvictions=" + statementEvictions + "]";
+		}
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		DriverManager.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return DriverManager.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+}
@@ -3,57 +3,125 @@ package db;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
+import javax.sql.DataSource;
+
 public class DB {
 
-	private static Connection conn = null;
-	
-	public static Connection getConnection() {
-		if (conn == null) {
-			try {
-				Properties props = loadProperties();
-				String url = props.getProperty("dburl");
-				conn = DriverManager.getConnection(url, props);
-			}
-			catch (SQLException e) {
-				throw new DbException(e.getMessage());
+	private static Properties props = null;
+
+	private static ConnectionPool pool = null;
+
+	private static TransactionManager transactions = null;
+
+	private static ReplicaRouter replicas = null;
+
+	/**
+	 * The primary, for writes and for anything that must see the latest
+	 * data.
+	 */
+	public static synchronized DataSource getDataSource() {
+		getTransactionManager();
+		return replicas == null ? transactions : replicas.getWriteDataSource();
+	}
+
+	/**
+	 * The read replicas listed in replica.urls, or the primary when there
+	 * are none.
+	 */
+	public static synchronized DataSource getReadDataSource() {
+		getTransactionManager();
+		return replicas == null ? transactions : replicas;
+	}
+
+	public static synchronized TransactionManager getTransactionManager() {
+		if (pool == null) {
+			Properties props = loadProperties();
+			String url = props.getProperty("dburl");
+			pool = new ConnectionPool(url, props);
+			transactions = new TransactionManager(pool);
+			List<String> replicaUrls = listProperty(props, "replica.urls");
+			if (!replicaUrls.isEmpty()) {
+				replicas = new ReplicaRouter(transactions, replicaUrls, props);
 			}
 		}
-		return conn;
+		return transactions;
+	}
+
+	public static Connection getConnection() {
+		try {
+			return getDataSource().getConnection();
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+		}
 	}
-	
-	public static void closeConnection() {
+
+	public static synchronized ConnectionPool.Stats getPoolStats() {
+		return pool == null ? null : pool.getStats();
+	}
+
+	public static synchronized void closeConnection() {
+		if (replicas != null) {
+			replicas.close();
+			replicas = null;
+		}
+		if (pool != null) {
+			pool.close();
+			pool = null;
+			transactions = null;
+		}
+	}
+
+	public static void closeConnection(Connection conn) {
 		if (conn != null) {
 			try {
 				conn.close();
 			} catch (SQLException e) {
-				throw new DbException(e.getMessage());
+				throw new DbException(e);
 			}
 		}
 	}
-	
-	private static Properties loadProperties() {
-		try (FileInputStream fs = new FileInputStream("db.properties")) {
-			Properties props = new Properties();
-			props.load(fs);
-			return props;
+
+	public static synchronized Properties loadProperties() {
+		if (props == null) {
+			try (FileInputStream fs = new FileInputStream(System.getProperty("db.config", "db.properties"))) {
+				props = new Properties();
+				props.load(fs);
+			}
+			catch (IOException e) {
+				throw new DbException(e);
+			}
 		}
-		catch (IOException e) {
-			throw new DbException(e.getMessage());
+		return props;
+	}
+
+	public static int getIntProperty(String key, int defaultValue) {
+		return ConnectionPool.intProperty(loadProperties(), key, defaultValue);
+	}
+
+	private static List<String> listProperty(Properties props, String key) {
+		List<String> values = new ArrayList<>();
+		for (String value : props.getProperty(key, "").split(",")) {
+			if (!value.isBlank()) {
+				values.add(value.trim());
+			}
 		}
+		return values;
 	}
-	
+
 	public static void closeStatement(Statement st) {
 		if (st != null) {
 			try {
 				st.close();
 			} catch (SQLException e) {
-				throw new DbException(e.getMessage());
+				throw new DbException(e);
 			}
 		}
 	}
@@ -63,7 +131,7 @@ public class DB {
 			try {
 				rs.close();
 			} catch (SQLException e) {
-				throw new DbException(e.getMessage());
+				throw new DbException(e);
 			}
 		}
 	}
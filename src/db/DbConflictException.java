@@ -0,0 +1,13 @@
+package db;
+
+/**
+ * An update found the row changed or deleted since it was read: its version
+ * no longer matched.
+ */
+public class DbConflictException extends DbException {
+	private static final long serialVersionUID = 1L;
+
+	public DbConflictException(String msg) {
+		super(msg);
+	}
+}
@@ -1,9 +1,28 @@
 package db;
 
+import java.sql.SQLException;
+
 public class DbException extends RuntimeException {
 	private static final long serialVersionUID = 1L;
 
+	private final String sqlState;
+
 	public DbException(String msg) {
 		super(msg);
+		this.sqlState = null;
+	}
+
+	public DbException(Throwable cause) {
+		super(cause.getMessage(), cause);
+		this.sqlState = null;
+	}
+
+	public DbException(SQLException cause) {
+		super(cause.getMessage(), cause);
+		this.sqlState = cause.getSQLState();
+	}
+
+	public String getSqlState() {
+		return sqlState;
 	}
 }
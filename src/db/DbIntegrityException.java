@@ -1,9 +1,23 @@
 package db;
 
+import java.sql.SQLException;
+
 public class DbIntegrityException extends RuntimeException {
 	private static final long serialVersionUID = 1L;
 
+	private final String sqlState;
+
 	public DbIntegrityException(String msg) {
 		super(msg);
+		this.sqlState = null;
+	}
+
+	public DbIntegrityException(SQLException cause) {
+		super(cause.getMessage(), cause);
+		this.sqlState = cause.getSQLState();
+	}
+
+	public String getSqlState() {
+		return sqlState;
 	}
 }
@@ -0,0 +1,191 @@
+package db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Versioned schema migrations. Scripts live in /db/migrations on the
+ * classpath and are applied in order, each in its own transaction; applied
+ * versions are recorded in schema_version.
+ */
+public class Migrations {
+
+	// new scripts are appended here, applied scripts must never change
+	private static final String[] SCRIPTS = {
+			"V1__create_schema.sql",
+			"V2__performance_indexes.sql",
+			"V3__seller_search_indexes.sql",
+			"V4__department_summary.sql",
+			"V5__optimistic_locking.sql",
+			"V6__change_notifications.sql",
+			"V7__change_tracking.sql",
+			"V8__seller_text_collation.sql",
+			"V9__department_text_collation.sql",
+	};
+
+	public static void migrate() {
+		Connection conn = null;
+		Statement st = null;
+		try {
+			conn = DB.getConnection();
+			st = conn.createStatement();
+			st.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+					"version INTEGER PRIMARY KEY, " +
+					"description VARCHAR(200) NOT NULL, " +
+					"installed_on TIMESTAMP NOT NULL DEFAULT now())");
+
+			for (String script : SCRIPTS) {
+				apply(conn, script);
+			}
+		}
+		catch (SQLException | IOException e) {
+			throw new DbException(e);
+		}
+		finally {
+			DB.closeStatement(st);
+			DB.closeConnection(conn);
+		}
+	}
+
+	private static void apply(Connection conn, String script) throws SQLException, IOException {
+		int version = Integer.parseInt(script.substring(1, script.indexOf("__")));
+		String description = script.substring(script.indexOf("__") + 2, script.lastIndexOf('.')).replace('_', ' ');
+
+		conn.setAutoCommit(false);
+		Statement st = null;
+		try {
+			st = conn.createStatement();
+			// several clients may start at once, only one of them runs the migrations
+			st.execute("LOCK TABLE schema_version IN EXCLUSIVE MODE");
+			if (appliedVersions(conn).contains(version)) {
+				conn.commit();
+				return;
+			}
+
+			for (String sql : split(read(script))) {
+				st.execute(sql);
+			}
+
+			PreparedStatement insert = conn.prepareStatement(
+					"INSERT INTO schema_version (version, description) VALUES (?, ?)");
+			try {
+				insert.setInt(1, version);
+				insert.setString(2, description);
+				insert.executeUpdate();
+			}
+			finally {
+				DB.closeStatement(insert);
+			}
+			conn.commit();
+		}
+		catch (SQLException | IOException | RuntimeException e) {
+			conn.rollback();
+			throw e;
+		}
+		finally {
+			DB.closeStatement(st);
+			conn.setAutoCommit(true);
+		}
+	}
+
+	private static Set<Integer> appliedVersions(Connection conn) throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		Statement st = null;
+		ResultSet result = null;
+		try {
+			st = conn.createStatement();
+			result = st.executeQuery("SELECT version FROM schema_version");
+			while (result.next()) {
+				versions.add(result.getInt(1));
+			}
+			return versions;
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(st);
+		}
+	}
+
+	private static String read(String script) throws IOException {
+		try (InputStream in = Migrations.class.getResourceAsStream("/db/migrations/" + script)) {
+			if (in == null) {
+				throw new IOException("Migration script not found: " + script);
+			}
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Splits a script on semicolons, skipping those inside quotes,
+	 * dollar-quoted function bodies and comments.
+	 */
+	static List<String> split(String script) {
+		List<String> statements = new ArrayList<>();
+		var current = new StringBuilder();
+		String dollarTag = null;
+		boolean inQuote = false;
+
+		for (int i = 0; i < script.length(); i++) {
+			char c = script.charAt(i);
+
+			if (dollarTag != null) {
+				if (script.startsWith(dollarTag, i)) {
+					current.append(dollarTag);
+					i += dollarTag.length() - 1;
+					dollarTag = null;
+				} else {
+					current.append(c);
+				}
+				continue;
+			}
+			if (inQuote) {
+				current.append(c);
+				if (c == '\'') {
+					inQuote = false;
+				}
+				continue;
+			}
+			if (c == '-' && script.startsWith("--", i)) {
+				int end = script.indexOf('\n', i);
+				i = end < 0 ? script.length() : end;
+				current.append('\n');
+				continue;
+			}
+			if (c == '\'') {
+				inQuote = true;
+			} else if (c == '$') {
+				int end = script.indexOf('$', i + 1);
+				if (end > 0 && script.substring(i + 1, end).matches("\\w*")) {
+					dollarTag = script.substring(i, end + 1);
+					current.append(dollarTag);
+					i = end;
+					continue;
+				}
+			} else if (c == ';') {
+				addStatement(statements, current);
+				continue;
+			}
+			current.append(c);
+		}
+		addStatement(statements, current);
+		return statements;
+	}
+
+	private static void addStatement(List<String> statements, StringBuilder current) {
+		String sql = current.toString().trim();
+		if (!sql.isEmpty()) {
+			statements.add(sql);
+		}
+		current.setLength(0);
+	}
+}
@@ -0,0 +1,68 @@
+package db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lets another thread stop a query nobody waits for anymore. The DAO
+ * registers its statement while it runs; cancel() asks the database to
+ * stop it, or keeps it from starting when it has not yet.
+ */
+public class QueryCancel {
+
+	private Statement statement;
+
+	private boolean cancelled;
+
+	/**
+	 * Called by the DAO right before executing. Throws if the query was
+	 * cancelled in the meantime.
+	 */
+	public synchronized void register(Statement st) {
+		if (cancelled) {
+			throw new DbException("Query cancelled");
+		}
+		statement = st;
+	}
+
+	/**
+	 * Called by the DAO once the query is done, before the statement goes
+	 * back to the pool's cache.
+	 */
+	public synchronized void unregister() {
+		statement = null;
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Marks the query cancelled right away and sends the cancel request in
+	 * the background: it is a round trip on a new connection, not for the
+	 * JavaFX Application Thread.
+	 */
+	public void cancel() {
+		Statement running;
+		synchronized (this) {
+			cancelled = true;
+			running = statement;
+		}
+		if (running != null) {
+			CompletableFuture.runAsync(() -> cancel(running));
+		}
+	}
+
+	// under the lock, so the statement cannot be handed to another query while the request is sent
+	private synchronized void cancel(Statement running) {
+		if (statement != running) {
+			return;
+		}
+		try {
+			running.cancel();
+		} catch (SQLException e) {
+			// the query ends on its own
+		}
+	}
+}
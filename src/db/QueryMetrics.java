@@ -0,0 +1,215 @@
+package db;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms, row counts and error counts per DAO operation,
+ * published over JMX as db:type=QueryMetrics.
+ * <p>
+ * Also the one place background work reports the problems it recovers from
+ * on its own (a lost connection, a failed sync): they go to the "db" logger
+ * and the latest ones are kept for the Diagnostics view.
+ */
+public class QueryMetrics implements QueryMetricsMXBean {
+
+	// bucket i holds calls that took less than 2^i microseconds
+	private static final int BUCKETS = 40;
+
+	private static final int MAX_WARNINGS = 50;
+
+	private static final Logger log = Logger.getLogger("db");
+
+	private static final QueryMetrics instance = register(new QueryMetrics());
+
+	private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+	private final Deque<String> warnings = new ArrayDeque<>();
+
+	private static QueryMetrics register(QueryMetrics metrics) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("db:type=QueryMetrics"));
+		} catch (JMException e) {
+			log.log(Level.WARNING, "Query metrics not published over JMX", e);
+		}
+		return metrics;
+	}
+
+	public static QueryMetrics getInstance() {
+		return instance;
+	}
+
+	public static <T> T record(String operation, Supplier<T> call, ToLongFunction<T> rowCount) {
+		long start = System.nanoTime();
+		T result;
+		try {
+			result = call.get();
+		} catch (RuntimeException e) {
+			record(operation, System.nanoTime() - start, 0, true);
+			throw e;
+		}
+		record(operation, System.nanoTime() - start, result == null ? 0 : rowCount.applyAsLong(result), false);
+		return result;
+	}
+
+	public static void record(String operation, long nanos, long rows, boolean failed) {
+		var op = instance.operations.computeIfAbsent(operation, key -> new Operation());
+		op.record(nanos);
+		op.rows.add(rows);
+		if (failed) {
+			op.errors.increment();
+		}
+	}
+
+	public static void record(String operation, Runnable call, long rows) {
+		record(operation, () -> {
+			call.run();
+			return rows;
+		}, Long::longValue);
+	}
+
+	public static void warning(String message) {
+		warning(message, null);
+	}
+
+	/**
+	 * Logs the problem, with the cause's stack trace when one is given, and
+	 * keeps the message for getRecentWarnings().
+	 */
+	public static void warning(String message, Throwable cause) {
+		log.log(Level.WARNING, message, cause);
+		String line = LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + " " + message;
+		synchronized (instance.warnings) {
+			if (instance.warnings.size() == MAX_WARNINGS) {
+				instance.warnings.removeFirst();
+			}
+			instance.warnings.addLast(line);
+		}
+	}
+
+	// newest first
+	@Override
+	public List<String> getRecentWarnings() {
+		synchronized (warnings) {
+			List<String> list = new ArrayList<>(warnings);
+			Collections.reverse(list);
+			return list;
+		}
+	}
+
+	@Override
+	public List<QueryStats> getQueries() {
+		List<QueryStats> list = new ArrayList<>();
+		operations.forEach((name, op) -> list.add(op.snapshot(name)));
+		list.sort((a, b) -> a.getOperation().compareTo(b.getOperation()));
+		return list;
+	}
+
+	@Override
+	public int getPoolActive() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0 : stats.getActive();
+	}
+
+	@Override
+	public int getPoolIdle() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0 : stats.getIdle();
+	}
+
+	@Override
+	public int getPoolWaiting() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0 : stats.getWaiting();
+	}
+
+	@Override
+	public double getPoolAverageWaitMillis() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0.0 : stats.getAverageWaitMillis();
+	}
+
+	@Override
+	public double getPoolMaxWaitMillis() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0.0 : stats.getMaxWaitMillis();
+	}
+
+	@Override
+	public long getPoolTimeouts() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0 : stats.getTimeoutCount();
+	}
+
+	@Override
+	public double getStatementCacheHitRate() {
+		var stats = DB.getPoolStats();
+		return stats == null ? 0.0 : stats.getStatementHitRate();
+	}
+
+	@Override
+	public void reset() {
+		operations.clear();
+		synchronized (warnings) {
+			warnings.clear();
+		}
+	}
+
+	private static class Operation {
+		final LongAdder count = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder rows = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+		final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		void record(long nanos) {
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			long micros = nanos / 1000;
+			int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets.incrementAndGet(bucket);
+		}
+
+		QueryStats snapshot(String name) {
+			long n = count.sum();
+			double average = n == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / n;
+			return new QueryStats(name, n, errors.sum(), rows.sum(), average, percentile(n, 0.50),
+					percentile(n, 0.95), percentile(n, 0.99), maxNanos.get() / 1_000_000.0);
+		}
+
+		private double percentile(long n, double fraction) {
+			if (n == 0) {
+				return 0.0;
+			}
+			long target = (long) Math.ceil(n * fraction);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += buckets.get(i);
+				if (seen >= target) {
+					return Math.min((1L << i) / 1000.0, maxNanos.get() / 1_000_000.0);
+				}
+			}
+			return maxNanos.get() / 1_000_000.0;
+		}
+	}
+}
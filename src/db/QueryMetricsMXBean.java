@@ -0,0 +1,26 @@
+package db;
+
+import java.util.List;
+
+public interface QueryMetricsMXBean {
+
+	List<QueryStats> getQueries();
+
+	int getPoolActive();
+
+	int getPoolIdle();
+
+	int getPoolWaiting();
+
+	double getPoolAverageWaitMillis();
+
+	double getPoolMaxWaitMillis();
+
+	long getPoolTimeouts();
+
+	double getStatementCacheHitRate();
+
+	List<String> getRecentWarnings();
+
+	void reset();
+}
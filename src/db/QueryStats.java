@@ -0,0 +1,77 @@
+package db;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the metrics recorded for one DAO operation.
+ */
+public class QueryStats {
+
+	private final String operation;
+	private final long count;
+	private final long errors;
+	private final long rows;
+	private final double averageMillis;
+	private final double p50Millis;
+	private final double p95Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+
+	@ConstructorProperties({ "operation", "count", "errors", "rows", "averageMillis", "p50Millis", "p95Millis",
+			"p99Millis", "maxMillis" })
+	public QueryStats(String operation, long count, long errors, long rows, double averageMillis, double p50Millis,
+			double p95Millis, double p99Millis, double maxMillis) {
+		this.operation = operation;
+		this.count = count;
+		this.errors = errors;
+		this.rows = rows;
+		this.averageMillis = averageMillis;
+		this.p50Millis = p50Millis;
+		this.p95Millis = p95Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public double getAverageMillis() {
+		return averageMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP95Millis() {
+		return p95Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryStats [operation=" + operation + ", count=" + count + ", errors=" + errors + ", rows=" + rows
+				+ ", averageMillis=" + averageMillis + ", p50Millis=" + p50Millis + ", p95Millis=" + p95Millis
+				+ ", p99Millis=" + p99Millis + ", maxMillis=" + maxMillis + "]";
+	}
+}
@@ -0,0 +1,298 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource for reads that spreads them over the read replicas and falls
+ * back to the primary when no replica is safe to read from.
+ * <p>
+ * A replica is safe when it has replayed everything the primary had
+ * written as of a check that started after this client's last write
+ * (read-your-writes), and that check is at most replica.maxLag ms old. A
+ * background check compares pg_current_wal_lsn() on the primary with
+ * pg_last_wal_replay_lsn() on each replica every replica.checkInterval ms,
+ * so for up to one interval after a save reads go to the primary.
+ * <p>
+ * Reads inside a transaction always go to the primary, they must see the
+ * transaction's own writes.
+ */
+public class ReplicaRouter implements DataSource {
+
+	private final TransactionManager primary;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private final DataSource writes = new WriteTracker();
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final ScheduledExecutorService checker;
+
+	private final long maxLagNanos;
+
+	private volatile long lastWriteNanos = System.nanoTime();
+
+	public ReplicaRouter(TransactionManager primary, List<String> urls, Properties props) {
+		this.primary = primary;
+		for (String url : urls) {
+			try {
+				replicas.add(new Replica(url, new ConnectionPool(url, props)));
+			} catch (DbException e) {
+				// reads go to the primary and the other replicas, a restart picks it up again
+				QueryMetrics.warning("Replica " + url + " skipped: " + e.getMessage());
+			}
+		}
+		maxLagNanos = TimeUnit.MILLISECONDS.toNanos(ConnectionPool.intProperty(props, "replica.maxLag", 5000));
+		long interval = ConnectionPool.intProperty(props, "replica.checkInterval", 1000);
+
+		checker = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "db-replica-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		checker.scheduleWithFixedDelay(this::checkReplicas, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The primary, for writes. Marks every write so that later reads wait
+	 * for the replicas to catch up with it.
+	 */
+	public DataSource getWriteDataSource() {
+		return writes;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (primary.isActive() || replicas.isEmpty()) {
+			return primary.getConnection();
+		}
+		long now = System.nanoTime();
+		long lastWrite = lastWriteNanos;
+		int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get((start + i) % replicas.size());
+			long caughtUp = replica.caughtUpNanos;
+			if (caughtUp - lastWrite > 0 && now - caughtUp <= maxLagNanos) {
+				try {
+					return replica.pool.getConnection();
+				} catch (SQLException e) {
+					// try the next one, the check marks it down
+				}
+			}
+		}
+		return primary.getConnection();
+	}
+
+	private void markWrite() {
+		lastWriteNanos = System.nanoTime();
+	}
+
+	private void checkReplicas() {
+		long started = System.nanoTime();
+		String primaryLsn;
+		try {
+			primaryLsn = queryLsn(primary, "SELECT pg_current_wal_lsn()::text");
+		} catch (SQLException | RuntimeException e) {
+			// the primary is down, reads fall back to it anyway once the replicas go stale
+			return;
+		}
+		for (Replica replica : replicas) {
+			try {
+				String replayed = queryLsn(replica.pool, "SELECT pg_last_wal_replay_lsn()::text");
+				if (replayed != null && compareLsn(replayed, primaryLsn) >= 0) {
+					replica.caughtUpNanos = started;
+				}
+				replica.failing = false;
+			} catch (SQLException | RuntimeException e) {
+				if (!replica.failing) {
+					QueryMetrics.warning("Replica " + replica.url + " unavailable: " + e.getMessage());
+				}
+				replica.failing = true;
+			}
+		}
+	}
+
+	private static String queryLsn(DataSource dataSource, String sql) throws SQLException {
+		Connection conn = null;
+		Statement st = null;
+		ResultSet result = null;
+		try {
+			conn = dataSource.getConnection();
+			st = conn.createStatement();
+			result = st.executeQuery(sql);
+			return result.next() ? result.getString(1) : null;
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(st);
+			DB.closeConnection(conn);
+		}
+	}
+
+	// LSNs are printed as two hex halves, X/Y
+	static int compareLsn(String a, String b) {
+		return Long.compareUnsigned(parseLsn(a), parseLsn(b));
+	}
+
+	private static long parseLsn(String lsn) {
+		int slash = lsn.indexOf('/');
+		return Long.parseUnsignedLong(lsn.substring(0, slash), 16) << 32
+				| Long.parseUnsignedLong(lsn.substring(slash + 1), 16);
+	}
+
+	public void close() {
+		checker.shutdownNow();
+		for (Replica replica : replicas) {
+			replica.pool.close();
+		}
+	}
+
+	public List<ConnectionPool.Stats> getStats() {
+		List<ConnectionPool.Stats> stats = new ArrayList<>();
+		for (Replica replica : replicas) {
+			stats.add(replica.pool.getStats());
+		}
+		return stats;
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Credentials are configured in db.properties");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return primary.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		primary.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		primary.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return primary.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return primary.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return primary.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || primary.isWrapperFor(iface);
+	}
+
+	private static class Replica {
+		final String url;
+		final ConnectionPool pool;
+		// System.nanoTime() when the last check that found it caught up started
+		volatile long caughtUpNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+		volatile boolean failing;
+
+		Replica(String url, ConnectionPool pool) {
+			this.url = url;
+			this.pool = pool;
+		}
+	}
+
+	/**
+	 * The primary, marking a write when a connection is handed out and again
+	 * when the write is visible to others: on close, or when the
+	 * transaction it belongs to ends.
+	 */
+	private class WriteTracker implements DataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			markWrite();
+			Connection conn = primary.getConnection();
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+						if (method.getName().equals("close")) {
+							if (primary.isActive()) {
+								primary.afterCompletion(committed -> markWrite());
+							}
+							markWrite();
+						}
+						try {
+							return method.invoke(conn, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return ReplicaRouter.this.getConnection(username, password);
+		}
+
+		@Override
+		public PrintWriter getLogWriter() throws SQLException {
+			return primary.getLogWriter();
+		}
+
+		@Override
+		public void setLogWriter(PrintWriter out) throws SQLException {
+			primary.setLogWriter(out);
+		}
+
+		@Override
+		public void setLoginTimeout(int seconds) throws SQLException {
+			primary.setLoginTimeout(seconds);
+		}
+
+		@Override
+		public int getLoginTimeout() throws SQLException {
+			return primary.getLoginTimeout();
+		}
+
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			return primary.getParentLogger();
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			return primary.unwrap(iface);
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> iface) throws SQLException {
+			return primary.isWrapperFor(iface);
+		}
+	}
+}
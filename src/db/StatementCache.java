@@ -0,0 +1,178 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of prepared statements keyed by SQL text. Closing a
+ * cached statement hands it back to the cache instead of closing it, so the
+ * driver can reuse the parsed statement and the server-side plan.
+ * getConnection() on a statement answers the pooled connection it was
+ * prepared on, never the physical one.
+ */
+class StatementCache {
+
+	private final Connection physical;
+	private final int maxSize;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private final AtomicLong evictions;
+
+	private final Map<String, CachedStatement> statements;
+
+	StatementCache(Connection physical, int maxSize, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+		this.physical = physical;
+		this.maxSize = maxSize;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					StatementCache.this.evictions.incrementAndGet();
+					eldest.getValue().evict();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	static boolean isCacheable(Method method, Object[] args) {
+		return method.getName().equals("prepareStatement") && args != null && args.length <= 3
+				&& method.getParameterTypes()[args.length - 1] != String[].class
+				&& method.getParameterTypes()[args.length - 1] != int[].class;
+	}
+
+	PreparedStatement prepare(Method method, Object[] args, Connection owner, List<CachedStatement> checkedOut)
+			throws Throwable {
+		String key = Arrays.toString(args);
+		var cached = statements.get(key);
+		if (cached != null && cached.evicted) {
+			statements.remove(key);
+			cached = null;
+		}
+		if (cached != null && !cached.inUse) {
+			hits.incrementAndGet();
+		}
+		else {
+			misses.incrementAndGet();
+			var statement = (PreparedStatement) invoke(physical, method, args);
+			if (cached != null) {
+				// same SQL already checked out by this borrower, hand out an uncached one, closed when given back
+				cached = new CachedStatement(statement);
+				cached.evicted = true;
+			} else {
+				cached = new CachedStatement(statement);
+				statements.put(key, cached);
+			}
+		}
+		cached.inUse = true;
+		cached.owner = owner;
+		checkedOut.add(cached);
+		return cached.proxy;
+	}
+
+	/**
+	 * Closes the statements along with the physical connection, those still
+	 * checked out when they are given back.
+	 */
+	void closeAll() {
+		for (CachedStatement cached : new ArrayList<>(statements.values())) {
+			cached.evict();
+		}
+		statements.clear();
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	static class CachedStatement implements InvocationHandler {
+		private final PreparedStatement statement;
+		private final PreparedStatement proxy;
+		private boolean inUse;
+		private boolean evicted;
+		private Connection owner;
+
+		CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				giveBack();
+				return null;
+			case "isClosed":
+				return !inUse || statement.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "getConnection":
+				if (!inUse) {
+					throw new SQLException("Statement is closed");
+				}
+				// closing the physical connection would bypass the pool
+				return owner;
+			default:
+				if (!inUse) {
+					throw new SQLException("Statement is closed");
+				}
+				return StatementCache.invoke(statement, method, args);
+			}
+		}
+
+		void giveBack() {
+			if (!inUse) {
+				return;
+			}
+			inUse = false;
+			owner = null;
+			try {
+				if (evicted) {
+					statement.close();
+					return;
+				}
+				statement.clearParameters();
+				statement.clearBatch();
+				statement.setFetchSize(0);
+			} catch (SQLException e) {
+				evict();
+			}
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// dropped from the cache either way
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource that binds one connection to the current thread between
+ * begin() and commit()/rollback(). While a transaction is active every
+ * getConnection() on this thread returns that connection, so DAO calls join
+ * the transaction and nothing is committed until the outermost commit.
+ * Outside a transaction connections come straight from the pool in
+ * autocommit mode.
+ * <p>
+ * Nested begin() calls join the outer transaction. A nested rollback()
+ * marks the whole transaction rollback-only.
+ * <p>
+ * A stream opened in a transaction must be consumed and closed before the
+ * transaction ends.
+ */
+public class TransactionManager implements DataSource {
+
+	private final DataSource pool;
+
+	private final ThreadLocal<Context> current = new ThreadLocal<>();
+
+	public TransactionManager(DataSource pool) {
+		this.pool = pool;
+	}
+
+	public void begin() {
+		var ctx = current.get();
+		if (ctx != null) {
+			ctx.depth++;
+			return;
+		}
+		Connection conn = null;
+		try {
+			conn = pool.getConnection();
+			conn.setAutoCommit(false);
+			current.set(new Context(conn));
+		}
+		catch (SQLException e) {
+			DB.closeConnection(conn);
+			throw new DbException(e);
+		}
+	}
+
+	public void commit() {
+		var ctx = active();
+		if (--ctx.depth > 0) {
+			return;
+		}
+		boolean committed = false;
+		try {
+			if (ctx.rollbackOnly) {
+				ctx.conn.rollback();
+				throw new DbException("Transaction rolled back, an inner unit of work failed");
+			}
+			ctx.conn.commit();
+			committed = true;
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+		}
+		finally {
+			end(ctx, committed);
+		}
+	}
+
+	public void rollback() {
+		var ctx = active();
+		if (--ctx.depth > 0) {
+			ctx.rollbackOnly = true;
+			return;
+		}
+		try {
+			ctx.conn.rollback();
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+		}
+		finally {
+			end(ctx, false);
+		}
+	}
+
+	public boolean isActive() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Runs work in a transaction, committing if it returns normally and
+	 * rolling back if it throws. Joins the caller's transaction if there is
+	 * one.
+	 */
+	public <T> T inTransaction(Supplier<T> work) {
+		begin();
+		T result;
+		try {
+			result = work.get();
+		}
+		catch (RuntimeException | Error e) {
+			try {
+				rollback();
+			}
+			catch (RuntimeException | Error rollbackFailure) {
+				// a broken connection fails the rollback too, the work's failure is the one to report
+				e.addSuppressed(rollbackFailure);
+			}
+			throw e;
+		}
+		commit();
+		return result;
+	}
+
+	public void inTransaction(Runnable work) {
+		inTransaction(() -> {
+			work.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs action once the current transaction has ended, committed or not,
+	 * or right away when there is none. The flag passed is true on commit.
+	 */
+	public void afterCompletion(Consumer<Boolean> action) {
+		var ctx = current.get();
+		if (ctx == null) {
+			action.accept(true);
+		} else {
+			ctx.afterCompletion.add(action);
+		}
+	}
+
+	private Context active() {
+		var ctx = current.get();
+		if (ctx == null) {
+			throw new DbException("No transaction is active on this thread");
+		}
+		return ctx;
+	}
+
+	private void end(Context ctx, boolean committed) {
+		current.remove();
+		// back to the pool, which restores autocommit
+		DB.closeConnection(ctx.conn);
+		for (var action : ctx.afterCompletion) {
+			action.accept(committed);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		var ctx = current.get();
+		return ctx == null ? pool.getConnection() : ctx.proxy;
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Credentials are configured in db.properties");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return pool.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		pool.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		pool.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return pool.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return pool.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return pool.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || pool.isWrapperFor(iface);
+	}
+
+	private static class Context implements InvocationHandler {
+		final Connection conn;
+		final Connection proxy;
+		final List<Consumer<Boolean>> afterCompletion = new ArrayList<>();
+		int depth = 1;
+		boolean rollbackOnly;
+
+		Context(Connection conn) {
+			this.conn = conn;
+			this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				// DAOs close after every call, the connection lives until the transaction ends
+				return null;
+			case "setAutoCommit":
+				if ((Boolean) args[0]) {
+					throw new SQLException("Cannot enable autocommit inside a transaction");
+				}
+				return null;
+			case "commit":
+			case "rollback":
+				if (args == null) {
+					throw new SQLException("The transaction is ended through TransactionManager");
+				}
+				break;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				break;
+			}
+			try {
+				return method.invoke(conn, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
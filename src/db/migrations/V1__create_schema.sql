@@ -0,0 +1,16 @@
+-- Base schema. IF NOT EXISTS so databases created by hand before the
+-- migrations existed are adopted as they are.
+
+CREATE TABLE IF NOT EXISTS department (
+	id SERIAL PRIMARY KEY,
+	name VARCHAR(60) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS seller (
+	id SERIAL PRIMARY KEY,
+	name VARCHAR(128) NOT NULL,
+	email VARCHAR(100) NOT NULL,
+	birthDate DATE NOT NULL,
+	baseSalary DOUBLE PRECISION NOT NULL,
+	departmentId INTEGER NOT NULL REFERENCES department (id)
+);
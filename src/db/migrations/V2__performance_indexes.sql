@@ -0,0 +1,5 @@
+-- Foreign key index for the seller/department join and findByDepartment.
+CREATE INDEX IF NOT EXISTS seller_department_idx ON seller (departmentId);
+
+-- Ordered keyset paging on (name, id).
+CREATE INDEX IF NOT EXISTS seller_name_id_idx ON seller (name, id);
@@ -0,0 +1,15 @@
+-- Indexes backing SellerDao.search.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- name prefix search: lower(name) LIKE 'abc%'
+CREATE INDEX IF NOT EXISTS seller_name_lower_idx ON seller (lower(name) text_pattern_ops);
+
+-- email contains search: email ILIKE '%abc%'
+CREATE INDEX IF NOT EXISTS seller_email_trgm_idx ON seller USING gin (email gin_trgm_ops);
+
+-- equality lookup on email
+CREATE INDEX IF NOT EXISTS seller_email_idx ON seller (email);
+
+CREATE INDEX IF NOT EXISTS seller_base_salary_idx ON seller (baseSalary);
+CREATE INDEX IF NOT EXISTS seller_birth_date_idx ON seller (birthDate);
@@ -0,0 +1,68 @@
+-- Per-department seller aggregates for the department report, maintained
+-- by statement level triggers so reading the report never scans seller.
+
+CREATE TABLE IF NOT EXISTS department_summary (
+	departmentId INTEGER PRIMARY KEY REFERENCES department (id) ON DELETE CASCADE,
+	sellerCount INTEGER NOT NULL,
+	totalSalary NUMERIC NOT NULL,
+	minSalary DOUBLE PRECISION NOT NULL,
+	maxSalary DOUBLE PRECISION NOT NULL
+);
+
+-- min/max of one department become an index lookup when rows are removed
+CREATE INDEX IF NOT EXISTS seller_department_salary_idx ON seller (departmentId, baseSalary);
+
+CREATE OR REPLACE FUNCTION department_summary_refresh() RETURNS trigger AS $$
+BEGIN
+	IF TG_OP IN ('DELETE', 'UPDATE') THEN
+		UPDATE department_summary s
+		SET sellerCount = s.sellerCount - o.sellerCount,
+			totalSalary = s.totalSalary - o.totalSalary
+		FROM (SELECT departmentId, COUNT(*) AS sellerCount, SUM(baseSalary::numeric) AS totalSalary
+				FROM old_rows GROUP BY departmentId) o
+		WHERE s.departmentId = o.departmentId;
+
+		DELETE FROM department_summary WHERE sellerCount <= 0;
+
+		UPDATE department_summary s
+		SET minSalary = (SELECT MIN(baseSalary) FROM seller WHERE departmentId = s.departmentId),
+			maxSalary = (SELECT MAX(baseSalary) FROM seller WHERE departmentId = s.departmentId)
+		WHERE s.departmentId IN (SELECT departmentId FROM old_rows);
+	END IF;
+
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		INSERT INTO department_summary (departmentId, sellerCount, totalSalary, minSalary, maxSalary)
+		SELECT departmentId, COUNT(*), SUM(baseSalary::numeric), MIN(baseSalary), MAX(baseSalary)
+		FROM new_rows GROUP BY departmentId
+		ON CONFLICT (departmentId) DO UPDATE
+		SET sellerCount = department_summary.sellerCount + EXCLUDED.sellerCount,
+			totalSalary = department_summary.totalSalary + EXCLUDED.totalSalary,
+			minSalary = LEAST(department_summary.minSalary, EXCLUDED.minSalary),
+			maxSalary = GREATEST(department_summary.maxSalary, EXCLUDED.maxSalary);
+	END IF;
+
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- transition tables allow only one event per trigger
+DROP TRIGGER IF EXISTS seller_summary_insert ON seller;
+CREATE TRIGGER seller_summary_insert AFTER INSERT ON seller
+	REFERENCING NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION department_summary_refresh();
+
+DROP TRIGGER IF EXISTS seller_summary_update ON seller;
+CREATE TRIGGER seller_summary_update AFTER UPDATE ON seller
+	REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION department_summary_refresh();
+
+DROP TRIGGER IF EXISTS seller_summary_delete ON seller;
+CREATE TRIGGER seller_summary_delete AFTER DELETE ON seller
+	REFERENCING OLD TABLE AS old_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION department_summary_refresh();
+
+-- existing sellers
+TRUNCATE department_summary;
+INSERT INTO department_summary (departmentId, sellerCount, totalSalary, minSalary, maxSalary)
+SELECT departmentId, COUNT(*), SUM(baseSalary::numeric), MIN(baseSalary), MAX(baseSalary)
+FROM seller GROUP BY departmentId;
@@ -0,0 +1,6 @@
+-- Row versions for optimistic locking: every update bumps version and only
+-- succeeds if the row still has the version the client read.
+
+ALTER TABLE department ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE seller ADD COLUMN IF NOT EXISTS version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,60 @@
+-- Publish row changes on the data_change channel as table:op:id, so clients
+-- can patch the rows they show instead of reloading whole tables. A statement
+-- touching more than 100 rows sends a single table:RELOAD instead.
+
+CREATE OR REPLACE FUNCTION notify_data_change() RETURNS trigger AS $$
+DECLARE
+	changed_id INTEGER;
+	changed_count INTEGER;
+BEGIN
+	IF TG_OP = 'DELETE' THEN
+		SELECT COUNT(*) INTO changed_count FROM old_rows;
+	ELSE
+		SELECT COUNT(*) INTO changed_count FROM new_rows;
+	END IF;
+
+	IF changed_count > 100 THEN
+		PERFORM pg_notify('data_change', TG_TABLE_NAME || ':RELOAD');
+	ELSIF TG_OP = 'DELETE' THEN
+		FOR changed_id IN SELECT id FROM old_rows LOOP
+			PERFORM pg_notify('data_change', TG_TABLE_NAME || ':DELETE:' || changed_id);
+		END LOOP;
+	ELSE
+		FOR changed_id IN SELECT id FROM new_rows LOOP
+			PERFORM pg_notify('data_change', TG_TABLE_NAME || ':' || TG_OP || ':' || changed_id);
+		END LOOP;
+	END IF;
+
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS seller_notify_insert ON seller;
+CREATE TRIGGER seller_notify_insert AFTER INSERT ON seller
+	REFERENCING NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
+
+DROP TRIGGER IF EXISTS seller_notify_update ON seller;
+CREATE TRIGGER seller_notify_update AFTER UPDATE ON seller
+	REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
+
+DROP TRIGGER IF EXISTS seller_notify_delete ON seller;
+CREATE TRIGGER seller_notify_delete AFTER DELETE ON seller
+	REFERENCING OLD TABLE AS old_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
+
+DROP TRIGGER IF EXISTS department_notify_insert ON department;
+CREATE TRIGGER department_notify_insert AFTER INSERT ON department
+	REFERENCING NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
+
+DROP TRIGGER IF EXISTS department_notify_update ON department;
+CREATE TRIGGER department_notify_update AFTER UPDATE ON department
+	REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
+
+DROP TRIGGER IF EXISTS department_notify_delete ON department;
+CREATE TRIGGER department_notify_delete AFTER DELETE ON department
+	REFERENCING OLD TABLE AS old_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION notify_data_change();
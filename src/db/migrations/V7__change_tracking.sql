@@ -0,0 +1,60 @@
+-- Change tracking for clients that keep a local copy of seller and
+-- department. Every written row is stamped with the id of the transaction
+-- that wrote it and deletes leave a tombstone in deleted_row, so a client
+-- can fetch only what changed since its last sync. A timestamp would not
+-- do: transactions commit out of order, and a row stamped before the last
+-- sync could become visible after it.
+--
+-- Tombstones are only needed for localStore.maxAgeDays (7 by default),
+-- clients whose copy is older reload it fully. Older ones can be purged:
+-- DELETE FROM deleted_row WHERE deleted_on < now() - interval '7 days'
+
+ALTER TABLE department ADD COLUMN IF NOT EXISTS change_txid BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE seller ADD COLUMN IF NOT EXISTS change_txid BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS department_change_txid_idx ON department (change_txid);
+
+CREATE INDEX IF NOT EXISTS seller_change_txid_idx ON seller (change_txid);
+
+CREATE TABLE IF NOT EXISTS deleted_row (
+	table_name VARCHAR(30) NOT NULL,
+	id INTEGER NOT NULL,
+	change_txid BIGINT NOT NULL,
+	deleted_on TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS deleted_row_change_txid_idx ON deleted_row (change_txid);
+
+CREATE OR REPLACE FUNCTION stamp_change_txid() RETURNS trigger AS $$
+BEGIN
+	NEW.change_txid := txid_current();
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION record_deleted_rows() RETURNS trigger AS $$
+BEGIN
+	INSERT INTO deleted_row (table_name, id, change_txid)
+		SELECT TG_TABLE_NAME, id, txid_current() FROM old_rows;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS seller_stamp_change ON seller;
+CREATE TRIGGER seller_stamp_change BEFORE INSERT OR UPDATE ON seller
+	FOR EACH ROW EXECUTE FUNCTION stamp_change_txid();
+
+DROP TRIGGER IF EXISTS seller_record_delete ON seller;
+CREATE TRIGGER seller_record_delete AFTER DELETE ON seller
+	REFERENCING OLD TABLE AS old_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION record_deleted_rows();
+
+DROP TRIGGER IF EXISTS department_stamp_change ON department;
+CREATE TRIGGER department_stamp_change BEFORE INSERT OR UPDATE ON department
+	FOR EACH ROW EXECUTE FUNCTION stamp_change_txid();
+
+DROP TRIGGER IF EXISTS department_record_delete ON department;
+CREATE TRIGGER department_record_delete AFTER DELETE ON department
+	REFERENCING OLD TABLE AS old_rows
+	FOR EACH STATEMENT EXECUTE FUNCTION record_deleted_rows();
@@ -0,0 +1,9 @@
+-- Sellers are sorted by name and email in memory as well, by the local
+-- store and by the seller list when a row changes (model.dao.TextOrder).
+-- The default collation follows the server locale, which Java cannot
+-- reproduce; "C" compares bytes, the same order on every server and in
+-- the client. The indexes on both columns are rebuilt with it.
+
+ALTER TABLE seller ALTER COLUMN name TYPE VARCHAR(128) COLLATE "C";
+
+ALTER TABLE seller ALTER COLUMN email TYPE VARCHAR(100) COLLATE "C";
@@ -0,0 +1,4 @@
+-- department.Name sorts in the "C" collation like the seller columns in
+-- V8, the local store orders departments in memory with TextOrder.
+
+ALTER TABLE department ALTER COLUMN name TYPE VARCHAR(60) COLLATE "C";
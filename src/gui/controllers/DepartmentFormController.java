@@ -7,7 +7,8 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import db.DbConflictException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.utils.Alerts;
 import gui.utils.Constraints;
@@ -19,6 +20,7 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import model.entities.Department;
 import model.exceptions.ValidationException;
 import model.services.DepartmentService;
@@ -27,9 +29,12 @@ public class DepartmentFormController implements Initializable {
 
 	private Department entity;
 
+	// version when the form opened, the shared entity may be refreshed meanwhile
+	private Integer version;
+
 	private DepartmentService departmentService;
 	
-	private List<DataChangeListener> dataChangeListeners = new ArrayList<>();
+	private List<DataChangeListener<Department>> dataChangeListeners = new ArrayList<>();
 
 	@FXML
 	private TextField txtId;
@@ -54,24 +59,48 @@ public class DepartmentFormController implements Initializable {
 		if (departmentService == null) {
 			throw new IllegalStateException("Service was null");
 		}
+		boolean isNew = entity.getId() == null;
 		try {
 			entity = getFormData();
-			departmentService.saveOrUpdate(entity);
-			notifyDataChangeListerners();
-			Utils.currentStage(event).close();
-
 		}
 		catch (ValidationException e) {
 			setErrorMessages(e.getErrors());
+			return;
 		}
-		catch (DbException e) {
-			Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+		var stage = Utils.currentStage(event);
+		btnSave.setDisable(true);
+		Utils.onFxThread(departmentService.saveOrUpdateAsync(entity), saved -> {
+			notifyDataChangeListerners(isNew ? DataChangeEvent.inserted(saved) : DataChangeEvent.updated(saved));
+			stage.close();
+		}, e -> {
+			btnSave.setDisable(false);
+			if (e instanceof DbConflictException) {
+				reloadVersion(stage);
+			} else {
+				Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+			}
+		});
+	}
 
-		}
+	// name is the only field, so the user's name is kept and saving again overwrites the other edit
+	private void reloadVersion(Stage stage) {
+		Utils.onFxThread(departmentService.refreshAsync(entity.getId()), current -> {
+			if (current == null) {
+				Alerts.showAlert("Department removed", null,
+						"Another user removed this department while you were editing it.", AlertType.WARNING);
+				notifyDataChangeListerners(DataChangeEvent.deleted(entity));
+				stage.close();
+				return;
+			}
+			version = current.getVersion();
+			Alerts.showAlert("Department changed", null, "Another user renamed this department to '"
+					+ current.getName() + "' while you were editing it. Save again to replace it with your name.",
+					AlertType.WARNING);
+		}, e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
 	}
 
-	private void notifyDataChangeListerners() {
-		dataChangeListeners.forEach(listener -> listener.onDataChanged());
+	private void notifyDataChangeListerners(DataChangeEvent<Department> event) {
+		dataChangeListeners.forEach(listener -> listener.onDataChanged(event));
 	}
 
 	private Department getFormData() {
@@ -85,6 +114,7 @@ public class DepartmentFormController implements Initializable {
 			exception.addError("name", "Field can't be empty");
 		}
 		obj.setName(txtName.getText());
+		obj.setVersion(version);
 		
 		if (exception.getErrors().size() > 0) {
 			throw exception;
@@ -100,13 +130,17 @@ public class DepartmentFormController implements Initializable {
 
 	public void setDepartment(Department entity) {
 		this.entity = entity;
+		this.version = entity.getVersion();
+		// the form is reused, clear what the last edit left behind
+		setErrorMessages(Map.of());
+		btnSave.setDisable(false);
 	}
 
 	public void setDepartmentService(DepartmentService service) {
 		this.departmentService = service;
 	}
 	
-	public void subscribeDataChangeListener(DataChangeListener listener) {
+	public void subscribeDataChangeListener(DataChangeListener<Department> listener) {
 		dataChangeListeners.add(listener);
 	}
 
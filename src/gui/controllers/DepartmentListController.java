@@ -2,42 +2,46 @@ package gui.controllers;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
-import application.Main;
-import db.DbIntegrityException;
+import application.Startup;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
+import gui.listeners.RemoteChangeDispatcher;
 import gui.utils.Alerts;
 import gui.utils.Utils;
-import javafx.beans.property.ReadOnlyObjectWrapper;
+import gui.utils.ViewRegistry;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
-import javafx.scene.control.TableCell;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import model.entities.Department;
 import model.services.DepartmentService;
+import model.services.ExportService;
 
-public class DepartmentListController implements Initializable, DataChangeListener {
+public class DepartmentListController implements Initializable, DataChangeListener<Department> {
 
 	private DepartmentService departmentService;
 
 	private ObservableList<Department> obsList;
 
+	private CompletableFuture<List<Department>> pendingLoad;
+
 	@FXML
 	private TableView<Department> tableViewDepartment;
 
@@ -48,13 +52,13 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	private TableColumn<Department, String> tableColumnName;
 
 	@FXML
-	private TableColumn<Department, Department> tableColumnEdit;
+	private TableColumn<Department, Void> tableColumnActions;
 
 	@FXML
-	private TableColumn<Department, Department> tableColumnRemove;
+	private Button btnNew;
 
 	@FXML
-	private Button btnNew;
+	private Button btnExport;
 
 	@FXML
 	public void onBtnNewAction(ActionEvent e) {
@@ -63,6 +67,22 @@ public class DepartmentListController implements Initializable, DataChangeListen
 		createModalForm(obj, "/gui/views/DepartmentForm.fxml", parentStage);
 	}
 
+	@FXML
+	public void onBtnExportAction(ActionEvent e) {
+		Path file = Utils.chooseExportFile(Utils.currentStage(e), "departments.csv");
+		if (file == null) {
+			return;
+		}
+		btnExport.setDisable(true);
+		Utils.onFxThread(new ExportService().exportDepartmentsAsync(file), rows -> {
+			btnExport.setDisable(false);
+			Alerts.showAlert("Export finished", null, rows + " departments exported to " + file, AlertType.INFORMATION);
+		}, ex -> {
+			btnExport.setDisable(false);
+			Alerts.showAlert("Export failed", null, ex.getMessage(), AlertType.ERROR);
+		});
+	}
+
 	public void setDepartmentService(DepartmentService service) {
 		this.departmentService = service;
 	}
@@ -70,44 +90,62 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	@Override
 	public void initialize(URL url, ResourceBundle rb) {
 		iniatializeNodes();
+		RemoteChangeDispatcher.subscribeDepartments(this);
 	}
 
 	private void iniatializeNodes() {
 		tableColumnId.setCellValueFactory(new PropertyValueFactory<>("id"));
 		tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
-
-		var stage = (Stage) Main.getMainScene().getWindow();
-		tableViewDepartment.prefHeightProperty().bind(stage.heightProperty());
+		initActionButtons();
 	}
 
 	public void updateTableView() {
 		if (departmentService == null) {
 			throw new IllegalStateException("Service wa null");
 		}
-		List<Department> list = departmentService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewDepartment.setItems(obsList);
-		initEditButtons();
-		initRemoveButtons();
+		if (pendingLoad != null) {
+			pendingLoad.cancel(false);
+		}
+		tableViewDepartment.setPlaceholder(new Label("Loading..."));
+
+		var future = departmentService.findAllAsync();
+		pendingLoad = future;
+		Utils.onFxThread(future, list -> {
+			if (future != pendingLoad) {
+				return;
+			}
+			pendingLoad = null;
+			obsList = FXCollections.observableArrayList(list);
+			tableViewDepartment.setItems(obsList);
+			tableViewDepartment.setPlaceholder(new Label("No content in table"));
+			Startup.tableShown();
+		}, e -> {
+			pendingLoad = null;
+			tableViewDepartment.setPlaceholder(new Label("Could not load departments"));
+			Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+		});
 	}
 
+	// the form is parsed once and its stage reused, it only gets new data each time it opens
 	private void createModalForm(Department obj, String url, Stage parentStage) {
 		try {
-			var loader = new FXMLLoader(getClass().getResource(url));
-			Pane pane = loader.load();
-
-			DepartmentFormController controller = loader.getController();
+			ViewRegistry.View<DepartmentFormController> view = ViewRegistry.get(url);
+			DepartmentFormController controller = view.getController();
+			if (view.initialize()) {
+				controller.setDepartmentService(new DepartmentService());
+				controller.subscribeDataChangeListener(this);
+
+				var stage = new Stage();
+				stage.setTitle("Enter Department data");
+				stage.setScene(new Scene(view.getRoot()));
+				stage.setResizable(false);
+				stage.initOwner(parentStage);
+				stage.initModality(Modality.WINDOW_MODAL);
+			}
 			controller.setDepartment(obj);
-			controller.setDepartmentService(new DepartmentService());
-			controller.subscribeDataChangeListener(this);
 			controller.updateFormData();
 
-			var modalStage = new Stage();
-			modalStage.setTitle("Enter Department data");
-			modalStage.setScene(new Scene(pane));
-			modalStage.setResizable(false);
-			modalStage.initOwner(parentStage);
-			modalStage.initModality(Modality.WINDOW_MODAL);
+			var modalStage = (Stage) view.getRoot().getScene().getWindow();
 			modalStage.showAndWait();
 
 		} catch (IOException e) {
@@ -116,45 +154,29 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	}
 
 	@Override
-	public void onDataChanged() {
-		updateTableView();
-	}
-
-	private void initEditButtons() {
-		tableColumnEdit.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
-		tableColumnEdit.setCellFactory(param -> new TableCell<Department, Department>() {
-			private final Button button = new Button("edit");
-
-			@Override
-			protected void updateItem(Department obj, boolean empty) {
-				super.updateItem(obj, empty);
-				if (obj == null) {
-					setGraphic(null);
-					return;
-				}
-				setGraphic(button);
-				button.setOnAction(
-						event -> createModalForm(obj, "/gui/views/DepartmentForm.fxml", Utils.currentStage(event)));
+	public void onDataChanged(DataChangeEvent<Department> event) {
+		if (obsList == null || event.getType() == DataChangeEvent.Type.RELOADED) {
+			updateTableView();
+			return;
+		}
+		Department obj = event.getEntity();
+		int index = obsList.indexOf(obj);
+		if (event.getType() == DataChangeEvent.Type.DELETED) {
+			if (index >= 0) {
+				obsList.remove(index);
 			}
-		});
+		} else if (index >= 0) {
+			obsList.set(index, obj);
+		} else {
+			obsList.add(obj);
+		}
 	}
 
-	private void initRemoveButtons() {
-		tableColumnRemove.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
-		tableColumnRemove.setCellFactory(param -> new TableCell<Department, Department>() {
-			private final Button button = new Button("remove");
-
-			@Override
-			protected void updateItem(Department obj, boolean empty) {
-				super.updateItem(obj, empty);
-				if (obj == null) {
-					setGraphic(null);
-					return;
-				}
-				setGraphic(button);
-				button.setOnAction(event -> removeEntity(obj));
-			}
-		});
+	private void initActionButtons() {
+		Utils.formatTableColumnActions(tableColumnActions,
+				new Utils.CellAction<>("edit",
+						(obj, event) -> createModalForm(obj, "/gui/views/DepartmentForm.fxml", Utils.currentStage(event))),
+				new Utils.CellAction<>("remove", (obj, event) -> removeEntity(obj)));
 	}
 
 	private void removeEntity(Department obj) {
@@ -164,13 +186,8 @@ public class DepartmentListController implements Initializable, DataChangeListen
 			if (departmentService == null) {
 				throw new IllegalStateException("Service was null");
 			}
-			try {
-				departmentService.remove(obj);
-				updateTableView();
-			}
-			catch (DbIntegrityException e) {
-				Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
-			}
+			Utils.onFxThread(departmentService.removeAsync(obj), removed -> onDataChanged(DataChangeEvent.deleted(removed)),
+					e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
 		}
 	}
 
@@ -0,0 +1,121 @@
+package gui.controllers;
+
+import java.net.URL;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+import gui.utils.Alerts;
+import gui.utils.Utils;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import model.entities.DepartmentSummary;
+import model.services.ReportService;
+
+public class DepartmentReportController implements Initializable {
+
+	private ReportService reportService;
+
+	private CompletableFuture<List<DepartmentSummary>> pendingLoad;
+
+	@FXML
+	private TableView<DepartmentSummary> tableViewSummary;
+
+	@FXML
+	private TableColumn<DepartmentSummary, String> tableColumnDepartment;
+
+	@FXML
+	private TableColumn<DepartmentSummary, Integer> tableColumnSellers;
+
+	@FXML
+	private TableColumn<DepartmentSummary, Double> tableColumnTotal;
+
+	@FXML
+	private TableColumn<DepartmentSummary, Double> tableColumnAverage;
+
+	@FXML
+	private TableColumn<DepartmentSummary, Double> tableColumnMin;
+
+	@FXML
+	private TableColumn<DepartmentSummary, Double> tableColumnMax;
+
+	@FXML
+	private Label labelTotals;
+
+	@FXML
+	private Button btnRefresh;
+
+	@FXML
+	public void onBtnRefreshAction(ActionEvent event) {
+		updateTableView();
+	}
+
+	public void setReportService(ReportService reportService) {
+		this.reportService = reportService;
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		initializeNodes();
+	}
+
+	private void initializeNodes() {
+		tableColumnDepartment.setCellValueFactory(
+				param -> new ReadOnlyStringWrapper(param.getValue().getDepartment().getName()));
+		tableColumnSellers.setCellValueFactory(new PropertyValueFactory<>("sellerCount"));
+		tableColumnTotal.setCellValueFactory(new PropertyValueFactory<>("totalSalary"));
+		Utils.formatTableColumnDouble(tableColumnTotal, 2);
+		tableColumnAverage.setCellValueFactory(new PropertyValueFactory<>("averageSalary"));
+		Utils.formatTableColumnDouble(tableColumnAverage, 2);
+		tableColumnMin.setCellValueFactory(new PropertyValueFactory<>("minSalary"));
+		Utils.formatTableColumnDouble(tableColumnMin, 2);
+		tableColumnMax.setCellValueFactory(new PropertyValueFactory<>("maxSalary"));
+		Utils.formatTableColumnDouble(tableColumnMax, 2);
+	}
+
+	public void updateTableView() {
+		if (reportService == null) {
+			throw new IllegalStateException("Service was null");
+		}
+		if (pendingLoad != null) {
+			pendingLoad.cancel(false);
+		}
+		tableViewSummary.setPlaceholder(new Label("Loading..."));
+
+		var future = reportService.findDepartmentSummariesAsync();
+		pendingLoad = future;
+		Utils.onFxThread(future, list -> {
+			if (future != pendingLoad) {
+				return;
+			}
+			pendingLoad = null;
+			tableViewSummary.setItems(FXCollections.observableArrayList(list));
+			tableViewSummary.setPlaceholder(new Label("No content in table"));
+			updateTotals(list);
+		}, e -> {
+			pendingLoad = null;
+			tableViewSummary.setPlaceholder(new Label("Could not load the report"));
+			Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	private void updateTotals(List<DepartmentSummary> list) {
+		int sellers = 0;
+		double payroll = 0.0;
+		for (DepartmentSummary summary : list) {
+			sellers += summary.getSellerCount();
+			payroll += summary.getTotalSalary();
+		}
+		labelTotals.setText(String.format("%d departments, %d sellers, total payroll %.2f", list.size(), sellers,
+				payroll));
+	}
+}
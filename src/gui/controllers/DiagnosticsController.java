@@ -0,0 +1,129 @@
+package gui.controllers;
+
+import java.net.URL;
+import java.util.ResourceBundle;
+
+import application.Startup;
+import db.ConnectionPool;
+import db.DB;
+import db.QueryMetrics;
+import db.QueryStats;
+import gui.utils.Utils;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import model.services.DepartmentService;
+import model.services.SellerService;
+
+public class DiagnosticsController implements Initializable {
+
+	@FXML
+	private Label labelPool;
+
+	@FXML
+	private Label labelCache;
+
+	@FXML
+	private Label labelStartup;
+
+	@FXML
+	private TableView<QueryStats> tableViewQueries;
+
+	@FXML
+	private TableColumn<QueryStats, String> tableColumnOperation;
+
+	@FXML
+	private TableColumn<QueryStats, Long> tableColumnCount;
+
+	@FXML
+	private TableColumn<QueryStats, Long> tableColumnErrors;
+
+	@FXML
+	private TableColumn<QueryStats, Long> tableColumnRows;
+
+	@FXML
+	private TableColumn<QueryStats, Double> tableColumnAverage;
+
+	@FXML
+	private TableColumn<QueryStats, Double> tableColumnP50;
+
+	@FXML
+	private TableColumn<QueryStats, Double> tableColumnP95;
+
+	@FXML
+	private TableColumn<QueryStats, Double> tableColumnP99;
+
+	@FXML
+	private TableColumn<QueryStats, Double> tableColumnMax;
+
+	@FXML
+	private ListView<String> listViewWarnings;
+
+	@FXML
+	private Button btnRefresh;
+
+	@FXML
+	private Button btnReset;
+
+	@FXML
+	public void onBtnRefreshAction(ActionEvent event) {
+		updateView();
+	}
+
+	@FXML
+	public void onBtnResetAction(ActionEvent event) {
+		QueryMetrics.getInstance().reset();
+		updateView();
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		initializeNodes();
+	}
+
+	private void initializeNodes() {
+		tableColumnOperation.setCellValueFactory(new PropertyValueFactory<>("operation"));
+		tableColumnCount.setCellValueFactory(new PropertyValueFactory<>("count"));
+		tableColumnErrors.setCellValueFactory(new PropertyValueFactory<>("errors"));
+		tableColumnRows.setCellValueFactory(new PropertyValueFactory<>("rows"));
+		tableColumnAverage.setCellValueFactory(new PropertyValueFactory<>("averageMillis"));
+		Utils.formatTableColumnDouble(tableColumnAverage, 2);
+		tableColumnP50.setCellValueFactory(new PropertyValueFactory<>("p50Millis"));
+		Utils.formatTableColumnDouble(tableColumnP50, 2);
+		tableColumnP95.setCellValueFactory(new PropertyValueFactory<>("p95Millis"));
+		Utils.formatTableColumnDouble(tableColumnP95, 2);
+		tableColumnP99.setCellValueFactory(new PropertyValueFactory<>("p99Millis"));
+		Utils.formatTableColumnDouble(tableColumnP99, 2);
+		tableColumnMax.setCellValueFactory(new PropertyValueFactory<>("maxMillis"));
+		Utils.formatTableColumnDouble(tableColumnMax, 2);
+	}
+
+	public void updateView() {
+		ConnectionPool.Stats pool = DB.getPoolStats();
+		if (pool == null) {
+			labelPool.setText("Pool: not started");
+		} else {
+			labelPool.setText(String.format("Pool: %d open, %d active, %d idle, %d waiting, wait avg %.2f ms / max %.2f ms, "
+					+ "%d timeouts, %d leaks, statement cache hit rate %.0f%%", pool.getTotal(), pool.getActive(),
+					pool.getIdle(), pool.getWaiting(), pool.getAverageWaitMillis(), pool.getMaxWaitMillis(),
+					pool.getTimeoutCount(), pool.getLeakCount(), pool.getStatementHitRate() * 100));
+		}
+		labelCache.setText(String.format("Cache hit rate: sellers %.0f%%, seller lists %.0f%%, departments %.0f%%, "
+				+ "department lists %.0f%%", SellerService.getCacheStats().getHitRate() * 100,
+				SellerService.getListCacheStats().getHitRate() * 100,
+				DepartmentService.getCacheStats().getHitRate() * 100,
+				DepartmentService.getListCacheStats().getHitRate() * 100));
+
+		labelStartup.setText(Startup.report());
+
+		tableViewQueries.setItems(FXCollections.observableArrayList(QueryMetrics.getInstance().getQueries()));
+		listViewWarnings.setItems(FXCollections.observableArrayList(QueryMetrics.getInstance().getRecentWarnings()));
+	}
+}
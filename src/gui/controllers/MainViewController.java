@@ -3,75 +3,135 @@ package gui.controllers;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import application.Main;
 import gui.utils.Alerts;
+import gui.utils.ViewRegistry;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.control.TableView;
 import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
 import model.services.DepartmentService;
+import model.services.ReportService;
 import model.services.SellerService;
 
 public class MainViewController implements Initializable {
 
+	private static final String SELLER_LIST = "/gui/views/SellerList.fxml";
+
+	private static final String DEPARTMENT_LIST = "/gui/views/DepartmentList.fxml";
+
 	@FXML
 	private MenuItem menuItemSeller;
 
 	@FXML
 	private MenuItem menuItemDepartment;
 
+	@FXML
+	private MenuItem menuItemDepartmentReport;
+
+	@FXML
+	private MenuItem menuItemDiagnostics;
+
 	@FXML
 	private MenuItem menuItemAbout;
 
 	@FXML
 	public void onMenuItemSellerAction() {
-		loadView("/gui/views/SellerList.fxml", (SellerListController controller) -> {
+		loadView(SELLER_LIST, (SellerListController controller) -> {
 			controller.setSellerService(new SellerService());
+			controller.setDepartmentService(new DepartmentService());
 			controller.updateTableView();
 		});
 	}
 
 	@FXML
 	public void onMenuItemDepartmentAction() {
-		loadView("/gui/views/DepartmentList.fxml", (DepartmentListController controller) -> {
+		loadView(DEPARTMENT_LIST, (DepartmentListController controller) -> {
 			controller.setDepartmentService(new DepartmentService());
 			controller.updateTableView();
 		});
 	}
 
+	@FXML
+	public void onMenuItemDepartmentReportAction() {
+		// totals change with every edit, and the summary query is cheap
+		loadView("/gui/views/DepartmentReport.fxml",
+				(DepartmentReportController controller) -> controller.setReportService(new ReportService()),
+				DepartmentReportController::updateTableView);
+	}
+
+	@FXML
+	public void onMenuItemDiagnosticsAction() {
+		loadView("/gui/views/Diagnostics.fxml", x -> {
+		}, DiagnosticsController::updateView);
+	}
+
 	@FXML
 	public void onMenuItemAboutAction() {
 		loadView("/gui/views/About.fxml", x -> {
 		});
 	}
 
-	private synchronized <T> void loadView(String url, Consumer<T> initializingAction) {
+	/**
+	 * Parses the views opened most often while the user is still on the
+	 * start screen.
+	 */
+	public static CompletableFuture<Void> preloadViews() {
+		return ViewRegistry.preload(SELLER_LIST, DEPARTMENT_LIST);
+	}
+
+	private <T> void loadView(String url, Consumer<T> initializingAction) {
+		loadView(url, initializingAction, x -> {
+		});
+	}
+
+	/**
+	 * Shows a view, running initializingAction the first time it is shown
+	 * and showAction every time after that. Views and their data are kept
+	 * between visits, the change feed keeps the lists current.
+	 */
+	private synchronized <T> void loadView(String url, Consumer<T> initializingAction, Consumer<T> showAction) {
 		try {
-			var loader = new FXMLLoader(getClass().getResource(url));
-			VBox newVBox = loader.load();
+			ViewRegistry.View<T> view = ViewRegistry.get(url);
 
 			var mainScene = Main.getMainScene();
 			var mainVBox = (VBox) ((ScrollPane) mainScene.getRoot()).getContent();
 
 			var mainMenu = mainVBox.getChildren().get(0);
 
-			mainVBox.getChildren().clear();
-			mainVBox.getChildren().add(mainMenu);
-			mainVBox.getChildren().addAll(newVBox.getChildren());
+			mainVBox.getChildren().setAll(mainMenu);
+			mainVBox.getChildren().addAll(view.getContent());
 
-			T controller = loader.getController();
-			initializingAction.accept(controller);
+			if (view.initialize()) {
+				fitTablesToWindow(view, mainScene);
+				initializingAction.accept(view.getController());
+			}
+			showAction.accept(view.getController());
 
 		} catch (IOException e) {
 			Alerts.showAlert("IO Exception", null, e.getMessage(), AlertType.ERROR);
 		}
 	}
 
+	// here rather than in the controllers: views may be parsed on a worker thread, the stage is only touched on this one
+	private static void fitTablesToWindow(ViewRegistry.View<?> view, Scene scene) {
+		var stage = (Stage) scene.getWindow();
+		for (Node node : view.getContent()) {
+			if (node instanceof TableView) {
+				((TableView<?>) node).prefHeightProperty().bind(stage.heightProperty());
+			}
+		}
+	}
+
 	@Override
 	public void initialize(URL uri, ResourceBundle rb) {
 
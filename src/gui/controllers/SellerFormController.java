@@ -1,18 +1,22 @@
 package gui.controllers;
 
 import java.net.URL;
+import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DbException;
+import db.DbConflictException;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.utils.Alerts;
 import gui.utils.Constraints;
@@ -30,24 +34,29 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import javafx.util.Callback;
 import model.entities.Department;
 import model.entities.Seller;
 import model.exceptions.ValidationException;
 import model.services.DepartmentService;
 import model.services.SellerService;
+import model.services.SellerValidator;
 
 public class SellerFormController implements Initializable {
 
 	private Seller entity;
 
+	// the seller as last read from the database, the base for merging concurrent edits
+	private Seller original;
+
 	private SellerService sellerService;
 
 	private DepartmentService departmentService;
 
 	private ObservableList<Department> obsList;
 
-	private List<DataChangeListener> dataChangeListeners = new ArrayList<>();
+	private List<DataChangeListener<Seller>> dataChangeListeners = new ArrayList<>();
 
 	@FXML
 	private TextField txtId;
@@ -93,59 +102,103 @@ public class SellerFormController implements Initializable {
 		if (sellerService == null) {
 			throw new IllegalStateException("Service was null");
 		}
+		boolean isNew = entity.getId() == null;
 		try {
 			entity = getFormData();
-			sellerService.saveOrUpdate(entity);
-			notifyDataChangeListerners();
-			Utils.currentStage(event).close();
-
 		} catch (ValidationException e) {
 			setErrorMessages(e.getErrors());
-		} catch (DbException e) {
-			Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+			return;
+		}
+		var stage = Utils.currentStage(event);
+		btnSave.setDisable(true);
+		Utils.onFxThread(sellerService.saveOrUpdateAsync(entity), saved -> {
+			notifyDataChangeListerners(isNew ? DataChangeEvent.inserted(saved) : DataChangeEvent.updated(saved));
+			stage.close();
+		}, e -> {
+			btnSave.setDisable(false);
+			if (e instanceof DbConflictException) {
+				mergeWithCurrent(entity, stage);
+			} else {
+				Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+			}
+		});
+	}
+
+	private void mergeWithCurrent(Seller mine, Stage stage) {
+		Utils.onFxThread(sellerService.refreshAsync(mine.getId()), current -> {
+			if (current == null) {
+				Alerts.showAlert("Seller removed", null, "Another user removed this seller while you were editing it.",
+						AlertType.WARNING);
+				notifyDataChangeListerners(DataChangeEvent.deleted(mine));
+				stage.close();
+				return;
+			}
+			Map<String, String> conflicts = new HashMap<>();
+			var merged = new Seller();
+			merged.setId(current.getId());
+			merged.setName(merge("name", original.getName(), mine.getName(), current.getName(),
+					current.getName(), conflicts));
+			merged.setEmail(merge("email", original.getEmail(), mine.getEmail(), current.getEmail(),
+					current.getEmail(), conflicts));
+			merged.setBirthDate(merge("birthDate", original.getBirthDate(), mine.getBirthDate(),
+					current.getBirthDate(), new SimpleDateFormat("dd/MM/yyyy").format(current.getBirthDate()),
+					conflicts));
+			merged.setBaseSalary(merge("baseSalary", original.getBaseSalary(), mine.getBaseSalary(),
+					current.getBaseSalary(), String.format("%.2f", current.getBaseSalary()), conflicts));
+			merged.setDepartment(merge("department", original.getDepartment(), mine.getDepartment(),
+					current.getDepartment(), current.getDepartment().getName(), conflicts));
+			merged.setVersion(current.getVersion());
+
+			entity = merged;
+			original = copyOf(current);
+			updateFormData();
+			setErrorMessages(conflicts);
+			Alerts.showAlert("Seller changed", null, "Another user changed this seller while you were editing it. "
+					+ "Their changes were merged into the form" + (conflicts.isEmpty() ? "" : ", where you both "
+					+ "changed a field your value was kept") + ". Review and save again.", AlertType.WARNING);
+		}, e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
+	}
 
+	// three-way merge of one field: their change wins unless this form changed the field too
+	private static <T> T merge(String field, T base, T mine, T theirs, String theirsText,
+			Map<String, String> conflicts) {
+		if (Objects.equals(mine, base)) {
+			return theirs;
+		}
+		if (!Objects.equals(theirs, base) && !Objects.equals(theirs, mine)) {
+			conflicts.put(field, "Also changed to " + theirsText);
 		}
+		return mine;
 	}
 
-	private void notifyDataChangeListerners() {
-		dataChangeListeners.forEach(listener -> listener.onDataChanged());
+	private static Seller copyOf(Seller obj) {
+		var copy = new Seller(obj.getId(), obj.getName(), obj.getEmail(), obj.getBirthDate(), obj.getBaseSalary(),
+				obj.getDepartment());
+		copy.setVersion(obj.getVersion());
+		return copy;
+	}
+
+	private void notifyDataChangeListerners(DataChangeEvent<Seller> event) {
+		dataChangeListeners.forEach(listener -> listener.onDataChanged(event));
 	}
 
 	private Seller getFormData() {
 		var obj = new Seller();
 
-		var exception = new ValidationException("Validation error");
-
 		obj.setId(Utils.tryParseToInt(txtId.getText())); // id
-
-		if (txtName.getText() == null || txtName.getText().trim().equals("")) {
-			exception.addError("name", "Field can't be empty");
-		}
 		obj.setName(txtName.getText()); // name
-		
-		if (txtEmail.getText() == null || txtEmail.getText().trim().equals("")) {
-			exception.addError("email", "Field can't be empty");
-		}
 		obj.setEmail(txtEmail.getText()); // email
 		
-		if (dpBirthDate == null) {
-			exception.addError("birthDate", "Field can't be empty");
-		} else {
+		if (dpBirthDate.getValue() != null) {
 			var instant = Instant.from(dpBirthDate.getValue().atStartOfDay(ZoneId.systemDefault()));
 			obj.setBirthDate(Date.from(instant)); //birthDate
 		}
 		
-		
-		if (txtBaseSalary.getText() == null || txtBaseSalary.getText().trim().equals("")) {
-			exception.addError("baseSalary", "Field can't be empty"); 
-		}
 		obj.setBaseSalary(Utils.tryParseToDouble(txtBaseSalary.getText())); //baseSalary
-		
 		obj.setDepartment(comboBoxDepartment.getValue()); //department
+		obj.setVersion(original.getVersion());
 
-		if (exception.getErrors().size() > 0) {
-			throw exception;
-		}
+		SellerValidator.validate(obj);
 
 		return obj;
 	}
@@ -157,6 +210,10 @@ public class SellerFormController implements Initializable {
 
 	public void setSeller(Seller entity) {
 		this.entity = entity;
+		this.original = copyOf(entity);
+		// the form is reused, clear what the last edit left behind
+		setErrorMessages(Map.of());
+		btnSave.setDisable(false);
 	}
 
 	public void setServices(SellerService sellerService, DepartmentService departmentService) {
@@ -164,7 +221,7 @@ public class SellerFormController implements Initializable {
 		this.departmentService = departmentService;
 	}
 
-	public void subscribeDataChangeListener(DataChangeListener listener) {
+	public void subscribeDataChangeListener(DataChangeListener<Seller> listener) {
 		dataChangeListeners.add(listener);
 	}
 
@@ -176,8 +233,8 @@ public class SellerFormController implements Initializable {
 
 	private void initializeNodes() {
 		Constraints.setTextFieldInteger(txtId);
-		Constraints.setTextFieldMaxLength(txtName, 128);
-		Constraints.setTextFieldMaxLength(txtEmail, 64);
+		Constraints.setTextFieldMaxLength(txtName, SellerValidator.NAME_MAX_LENGTH);
+		Constraints.setTextFieldMaxLength(txtEmail, SellerValidator.EMAIL_MAX_LENGTH);
 		Constraints.setTextFieldDouble(txtBaseSalary);
 		Utils.formatDatePicker(dpBirthDate, "dd/MM/yyyy");
 		
@@ -197,6 +254,8 @@ public class SellerFormController implements Initializable {
 		
 		if (entity.getBirthDate() != null) {
 			dpBirthDate.setValue(LocalDate.ofInstant(entity.getBirthDate().toInstant(), ZoneId.systemDefault()));
+		} else {
+			dpBirthDate.setValue(null);
 		}
 		
 		if (entity.getDepartment() == null) {
@@ -208,9 +267,13 @@ public class SellerFormController implements Initializable {
 	}
 
 	public void loadAssociatedObjects() {
-		List<Department> list = departmentService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		comboBoxDepartment.setItems(obsList);
+		Utils.onFxThread(departmentService.findAllAsync(), list -> {
+			obsList = FXCollections.observableArrayList(list);
+			comboBoxDepartment.setItems(obsList);
+			if (entity != null && entity.getDepartment() == null) {
+				comboBoxDepartment.getSelectionModel().selectFirst();
+			}
+		}, e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
 	}
 
 	private void initializeComboBoxDepartment() {
@@ -230,7 +293,7 @@ public class SellerFormController implements Initializable {
 		
 		labelErrorName.setText(fields.contains("name") ? errors.get("name") : "");
 		labelErrorEmail.setText(fields.contains("email") ? errors.get("email") : "");
-		labelErrorBirthDate.setText(fields.contains("birthDate") ? errors.get("baseSalary") : "");
+		labelErrorBirthDate.setText(fields.contains("birthDate") ? errors.get("birthDate") : "");
 		labelErrorBaseSalary.setText(fields.contains("baseSalary") ? errors.get("baseSalary") : "");
 		
 	}
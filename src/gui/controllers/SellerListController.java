@@ -1,45 +1,86 @@
 package gui.controllers;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
-import application.Main;
-import db.DbIntegrityException;
+import application.Startup;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
+import gui.listeners.RemoteChangeDispatcher;
 import gui.utils.Alerts;
+import gui.utils.Constraints;
 import gui.utils.Utils;
-import javafx.beans.property.ReadOnlyObjectWrapper;
+import gui.utils.ViewRegistry;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
-import javafx.scene.control.TableCell;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.layout.Pane;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Callback;
+import javafx.util.Duration;
+import model.dao.SellerFilter;
+import model.dao.SellerSort;
+import model.entities.Department;
 import model.entities.Seller;
 import model.services.DepartmentService;
+import model.services.ExportService;
+import model.services.SellerImportService;
 import model.services.SellerService;
 
-public class SellerListController implements Initializable, DataChangeListener {
+public class SellerListController implements Initializable, DataChangeListener<Seller> {
+
+	public static final int PAGE_SIZE = 100;
 
 	private SellerService sellerService;
 
+	private DepartmentService departmentService;
+
 	private ObservableList<Seller> obsList;
 
+	private SellerFilter filter;
+
+	private SellerSort sort = SellerSort.DEFAULT;
+
+	private final PauseTransition searchDelay = new PauseTransition(Duration.millis(300));
+
+	private boolean lastPageLoaded;
+
+	private CompletableFuture<List<Seller>> pendingLoad;
+
+	private boolean reloadRequested;
+
 	@FXML
 	private TableView<Seller> tableViewSeller;
 
@@ -59,13 +100,46 @@ public class SellerListController implements Initializable, DataChangeListener {
 	private TableColumn<Seller, Double> tableColumnBaseSalary;
 
 	@FXML
-	private TableColumn<Seller, Seller> tableColumnEdit;
+	private TableColumn<Seller, Void> tableColumnActions;
 
 	@FXML
-	private TableColumn<Seller, Seller> tableColumnRemove;
+	private Button btnNew;
 
 	@FXML
-	private Button btnNew;
+	private Button btnExport;
+
+	@FXML
+	private Button btnImport;
+
+	@FXML
+	private ProgressBar progressImport;
+
+	@FXML
+	private Label labelImportStatus;
+
+	@FXML
+	private TextField txtFilterName;
+
+	@FXML
+	private TextField txtFilterEmail;
+
+	@FXML
+	private ComboBox<Department> comboBoxFilterDepartment;
+
+	@FXML
+	private TextField txtFilterMinSalary;
+
+	@FXML
+	private TextField txtFilterMaxSalary;
+
+	@FXML
+	private DatePicker dpFilterMinBirthDate;
+
+	@FXML
+	private DatePicker dpFilterMaxBirthDate;
+
+	@FXML
+	private Button btnClearFilter;
 
 	@FXML
 	public void onBtnNewAction(ActionEvent e) {
@@ -74,13 +148,108 @@ public class SellerListController implements Initializable, DataChangeListener {
 		createModalForm(obj, "/gui/views/SellerForm.fxml", parentStage);
 	}
 
+	@FXML
+	public void onBtnExportAction(ActionEvent e) {
+		Path file = Utils.chooseExportFile(Utils.currentStage(e), "sellers.csv");
+		if (file == null) {
+			return;
+		}
+		btnExport.setDisable(true);
+		Utils.onFxThread(new ExportService().exportSellersAsync(file), rows -> {
+			btnExport.setDisable(false);
+			Alerts.showAlert("Export finished", null, rows + " sellers exported to " + file, AlertType.INFORMATION);
+		}, ex -> {
+			btnExport.setDisable(false);
+			Alerts.showAlert("Export failed", null, ex.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	@FXML
+	public void onBtnImportAction(ActionEvent e) {
+		var chooser = new FileChooser();
+		chooser.setTitle("Import sellers");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+		File file = chooser.showOpenDialog(Utils.currentStage(e));
+		if (file == null) {
+			return;
+		}
+		Path errorFile = file.toPath().resolveSibling(file.getName() + ".errors.csv");
+		Writer errorReport;
+		try {
+			errorReport = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8);
+		} catch (IOException ex) {
+			Alerts.showAlert("IO Exception", null, ex.getMessage(), AlertType.ERROR);
+			return;
+		}
+
+		btnImport.setDisable(true);
+		progressImport.setProgress(0);
+		progressImport.setVisible(true);
+		labelImportStatus.setText("Importing...");
+
+		var future = new SellerImportService().importFileAsync(file.toPath(), errorReport,
+				report -> Platform.runLater(() -> showImportProgress(report)));
+		future = future.whenComplete((report, ex) -> closeErrorReport(errorReport));
+		Utils.onFxThread(future, report -> {
+			btnImport.setDisable(false);
+			progressImport.setVisible(false);
+			showImportProgress(report);
+			String content = String.format("%d sellers imported, %d rows rejected.", report.getRowsImported(),
+					report.getRowsFailed());
+			if (report.getRowsFailed() > 0) {
+				content += "\nSee " + errorFile + " for details.";
+			}
+			Alerts.showAlert("Import finished", null, content,
+					report.getRowsFailed() > 0 ? AlertType.WARNING : AlertType.INFORMATION);
+			updateTableView();
+		}, ex -> {
+			btnImport.setDisable(false);
+			progressImport.setVisible(false);
+			labelImportStatus.setText("");
+			Alerts.showAlert("Import failed", null, ex.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	private void showImportProgress(SellerImportService.Report report) {
+		progressImport.setProgress(report.getProgress());
+		labelImportStatus.setText(String.format("%d rows read, %d imported, %d rejected", report.getRowsRead(),
+				report.getRowsImported(), report.getRowsFailed()));
+	}
+
+	private static void closeErrorReport(Writer errorReport) {
+		try {
+			errorReport.close();
+		} catch (IOException e) {
+			// the import result stands, only the report may be truncated
+		}
+	}
+
+	@FXML
+	public void onBtnClearFilterAction(ActionEvent e) {
+		txtFilterName.clear();
+		txtFilterEmail.clear();
+		comboBoxFilterDepartment.setValue(null);
+		txtFilterMinSalary.clear();
+		txtFilterMaxSalary.clear();
+		dpFilterMinBirthDate.setValue(null);
+		dpFilterMaxBirthDate.setValue(null);
+	}
+
 	public void setSellerService(SellerService service) {
 		this.sellerService = service;
 	}
 
+	public void setDepartmentService(DepartmentService service) {
+		this.departmentService = service;
+		Utils.onFxThread(departmentService.findAllAsync(),
+				list -> comboBoxFilterDepartment.setItems(FXCollections.observableArrayList(list)),
+				e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
+	}
+
 	@Override
 	public void initialize(URL url, ResourceBundle rb) {
 		iniatializeNodes();
+		RemoteChangeDispatcher.subscribeSellers(this);
 	}
 
 	private void iniatializeNodes() {
@@ -92,39 +261,159 @@ public class SellerListController implements Initializable, DataChangeListener {
 		tableColumnBaseSalary.setCellValueFactory(new PropertyValueFactory<>("baseSalary"));
 		Utils.formatTableColumnDouble(tableColumnBaseSalary, 2);
 
-		var stage = (Stage) Main.getMainScene().getWindow();
-		tableViewSeller.prefHeightProperty().bind(stage.heightProperty());
+		initActionButtons();
+		Utils.onScrolledToEnd(tableViewSeller, this::loadNextPage);
+		initializeFilterNodes();
+		initializeSorting();
+	}
+
+	private void initializeFilterNodes() {
+		Constraints.setTextFieldDouble(txtFilterMinSalary);
+		Constraints.setTextFieldDouble(txtFilterMaxSalary);
+		Utils.formatDatePicker(dpFilterMinBirthDate, "dd/MM/yyyy");
+		Utils.formatDatePicker(dpFilterMaxBirthDate, "dd/MM/yyyy");
+		dpFilterMinBirthDate.setPromptText("Born from");
+		dpFilterMaxBirthDate.setPromptText("Born until");
+
+		Callback<ListView<Department>, ListCell<Department>> factory = lv -> new ListCell<Department>() {
+			@Override
+			protected void updateItem(Department item, boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty || item == null ? "" : item.getName());
+			}
+		};
+		comboBoxFilterDepartment.setCellFactory(factory);
+		comboBoxFilterDepartment.setButtonCell(factory.call(null));
+
+		// debounce keystrokes, the search runs once the user pauses typing
+		searchDelay.setOnFinished(e -> updateTableView());
+		txtFilterName.textProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		txtFilterEmail.textProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		comboBoxFilterDepartment.valueProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		txtFilterMinSalary.textProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		txtFilterMaxSalary.textProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		dpFilterMinBirthDate.valueProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+		dpFilterMaxBirthDate.valueProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+	}
+
+	private void initializeSorting() {
+		// header clicks are answered by the database, the loaded rows are never sorted in memory
+		tableViewSeller.setSortPolicy(table -> {
+			var newSort = getSortData();
+			if (!newSort.equals(sort)) {
+				sort = newSort;
+				updateTableView();
+			}
+			return true;
+		});
+	}
+
+	private SellerSort getSortData() {
+		if (tableViewSeller.getSortOrder().isEmpty()) {
+			return SellerSort.DEFAULT;
+		}
+		var column = tableViewSeller.getSortOrder().get(0);
+		boolean ascending = column.getSortType() == TableColumn.SortType.ASCENDING;
+		if (column == tableColumnId) {
+			return new SellerSort(SellerSort.Column.ID, ascending);
+		}
+		if (column == tableColumnEmail) {
+			return new SellerSort(SellerSort.Column.EMAIL, ascending);
+		}
+		if (column == tableColumnBirthDate) {
+			return new SellerSort(SellerSort.Column.BIRTH_DATE, ascending);
+		}
+		if (column == tableColumnBaseSalary) {
+			return new SellerSort(SellerSort.Column.BASE_SALARY, ascending);
+		}
+		return new SellerSort(SellerSort.Column.NAME, ascending);
+	}
+
+	private SellerFilter getFilterData() {
+		var obj = new SellerFilter();
+		obj.setNamePrefix(txtFilterName.getText());
+		obj.setEmail(txtFilterEmail.getText());
+		obj.setDepartment(comboBoxFilterDepartment.getValue());
+		obj.setMinBaseSalary(Utils.tryParseToDouble(txtFilterMinSalary.getText()));
+		obj.setMaxBaseSalary(Utils.tryParseToDouble(txtFilterMaxSalary.getText()));
+		obj.setMinBirthDate(toDate(dpFilterMinBirthDate.getValue()));
+		obj.setMaxBirthDate(toDate(dpFilterMaxBirthDate.getValue()));
+		return obj;
+	}
+
+	private static Date toDate(LocalDate date) {
+		return date == null ? null : Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
 	}
 
 	public void updateTableView() {
 		if (sellerService == null) {
 			throw new IllegalStateException("Service wa null");
 		}
-		List<Seller> list = sellerService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewSeller.setItems(obsList);
-		initEditButtons();
-		initRemoveButtons();
+		// a new search supersedes the one still running
+		if (pendingLoad != null) {
+			pendingLoad.cancel(false);
+		}
+		tableViewSeller.setPlaceholder(new Label("Loading..."));
+		
+		filter = getFilterData();
+		var future = sellerService.searchAsync(filter, sort, null, PAGE_SIZE);
+		pendingLoad = future;
+		Utils.onFxThread(future, list -> {
+			if (future != pendingLoad) {
+				return;
+			}
+			pendingLoad = null;
+			lastPageLoaded = list.size() < PAGE_SIZE;
+			obsList = FXCollections.observableArrayList(list);
+			tableViewSeller.setItems(obsList);
+			tableViewSeller.setPlaceholder(new Label("No content in table"));
+			Startup.tableShown();
+		}, this::showLoadError);
 	}
 
+	private void loadNextPage() {
+		if (sellerService == null || obsList == null || obsList.isEmpty() || lastPageLoaded || pendingLoad != null) {
+			return;
+		}
+		var future = sellerService.searchAsync(filter, sort, obsList.get(obsList.size() - 1), PAGE_SIZE);
+		pendingLoad = future;
+		Utils.onFxThread(future, list -> {
+			if (future != pendingLoad) {
+				return;
+			}
+			pendingLoad = null;
+			lastPageLoaded = list.size() < PAGE_SIZE;
+			obsList.addAll(list);
+		}, this::showLoadError);
+	}
+
+	private void showLoadError(Throwable e) {
+		pendingLoad = null;
+		tableViewSeller.setPlaceholder(new Label("Could not load sellers"));
+		Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
+	}
+
+	// the form is parsed once and its stage reused, it only gets new data each time it opens
 	private void createModalForm(Seller obj, String url, Stage parentStage) {
 		try {
-			var loader = new FXMLLoader(getClass().getResource(url));
-			Pane pane = loader.load();
-
-			SellerFormController controller = loader.getController();
+			ViewRegistry.View<SellerFormController> view = ViewRegistry.get(url);
+			SellerFormController controller = view.getController();
+			if (view.initialize()) {
+				controller.setServices(new SellerService(), new DepartmentService());
+				controller.subscribeDataChangeListener(this);
+
+				var stage = new Stage();
+				stage.setTitle("Enter Seller data");
+				stage.setScene(new Scene(view.getRoot()));
+				stage.setResizable(false);
+				stage.initOwner(parentStage);
+				stage.initModality(Modality.WINDOW_MODAL);
+			}
 			controller.setSeller(obj);
-			controller.setServices(new SellerService(), new DepartmentService());
 			controller.loadAssociatedObjects();
-			controller.subscribeDataChangeListener(this);
 			controller.updateFormData();
 
-			var modalStage = new Stage();
-			modalStage.setTitle("Enter Seller data");
-			modalStage.setScene(new Scene(pane));
-			modalStage.setResizable(false);
-			modalStage.initOwner(parentStage);
-			modalStage.initModality(Modality.WINDOW_MODAL);
+			var modalStage = (Stage) view.getRoot().getScene().getWindow();
 			modalStage.showAndWait();
 
 		} catch (IOException e) {
@@ -133,44 +422,56 @@ public class SellerListController implements Initializable, DataChangeListener {
 	}
 
 	@Override
-	public void onDataChanged() {
-		updateTableView();
+	public void onDataChanged(DataChangeEvent<Seller> event) {
+		// whether the row still matches a search is up to the database
+		if (obsList == null || event.getType() == DataChangeEvent.Type.RELOADED
+				|| (filter != null && !filter.isEmpty())) {
+			requestReload();
+			return;
+		}
+		Seller obj = event.getEntity();
+		int index = indexOf(obj.getId());
+		if (index >= 0) {
+			obsList.remove(index);
+		}
+		if (event.getType() == DataChangeEvent.Type.DELETED) {
+			return;
+		}
+		// the rows came in ORDER BY sort, comparator() agrees with it (see TextOrder)
+		int position = Collections.binarySearch(obsList, obj, sort.comparator());
+		position = position < 0 ? -position - 1 : position;
+		// rows past the last loaded page arrive with the next page
+		if (position < obsList.size() || lastPageLoaded) {
+			obsList.add(position, obj);
+		}
 	}
 
-	private void initEditButtons() {
-		tableColumnEdit.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
-		tableColumnEdit.setCellFactory(param -> new TableCell<Seller, Seller>() {
-			private final Button button = new Button("edit");
-
-			@Override
-			protected void updateItem(Seller obj, boolean empty) {
-				super.updateItem(obj, empty);
-				if (obj == null) {
-					setGraphic(null);
-					return;
-				}
-				setGraphic(button);
-				button.setOnAction(event -> createModalForm(obj, "/gui/views/SellerForm.fxml", Utils.currentStage(event)));
-			}
+	// events arrive in bursts, the table is reloaded once after the burst
+	private void requestReload() {
+		if (reloadRequested) {
+			return;
+		}
+		reloadRequested = true;
+		Platform.runLater(() -> {
+			reloadRequested = false;
+			updateTableView();
 		});
 	}
 
-	private void initRemoveButtons() {
-		tableColumnRemove.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
-		tableColumnRemove.setCellFactory(param -> new TableCell<Seller, Seller>() {
-			private final Button button = new Button("remove");
-
-			@Override
-			protected void updateItem(Seller obj, boolean empty) {
-				super.updateItem(obj, empty);
-				if (obj == null) {
-					setGraphic(null);
-					return;
-				}
-				setGraphic(button);
-				button.setOnAction(event -> removeEntity(obj));
+	private int indexOf(Integer id) {
+		for (int i = 0; i < obsList.size(); i++) {
+			if (obsList.get(i).getId().equals(id)) {
+				return i;
 			}
-		});
+		}
+		return -1;
+	}
+
+	private void initActionButtons() {
+		Utils.formatTableColumnActions(tableColumnActions,
+				new Utils.CellAction<>("edit",
+						(obj, event) -> createModalForm(obj, "/gui/views/SellerForm.fxml", Utils.currentStage(event))),
+				new Utils.CellAction<>("remove", (obj, event) -> removeEntity(obj)));
 	}
 
 	private void removeEntity(Seller obj) {
@@ -180,12 +481,8 @@ public class SellerListController implements Initializable, DataChangeListener {
 			if (sellerService == null) {
 				throw new IllegalStateException("Service was null");
 			}
-			try {
-				sellerService.remove(obj);
-				updateTableView();
-			} catch (DbIntegrityException e) {
-				Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR);
-			}
+			Utils.onFxThread(sellerService.removeAsync(obj), removed -> onDataChanged(DataChangeEvent.deleted(removed)),
+					e -> Alerts.showAlert("Database Error", null, e.getMessage(), AlertType.ERROR));
 		}
 	}
 
@@ -0,0 +1,49 @@
+package gui.listeners;
+
+public class DataChangeEvent<T> {
+
+	public enum Type {
+		INSERTED, UPDATED, DELETED, RELOADED
+	}
+
+	private final Type type;
+	private final T entity;
+
+	public DataChangeEvent(Type type, T entity) {
+		this.type = type;
+		this.entity = entity;
+	}
+
+	public static <T> DataChangeEvent<T> inserted(T entity) {
+		return new DataChangeEvent<>(Type.INSERTED, entity);
+	}
+
+	public static <T> DataChangeEvent<T> updated(T entity) {
+		return new DataChangeEvent<>(Type.UPDATED, entity);
+	}
+
+	public static <T> DataChangeEvent<T> deleted(T entity) {
+		return new DataChangeEvent<>(Type.DELETED, entity);
+	}
+
+	/**
+	 * Too many rows changed to list them, the whole view must be reloaded.
+	 * Carries no entity.
+	 */
+	public static <T> DataChangeEvent<T> reloaded() {
+		return new DataChangeEvent<>(Type.RELOADED, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public T getEntity() {
+		return entity;
+	}
+
+	@Override
+	public String toString() {
+		return "DataChangeEvent [type=" + type + ", entity=" + entity + "]";
+	}
+}
@@ -1,6 +1,6 @@
 package gui.listeners;
 
-public interface DataChangeListener {
+public interface DataChangeListener<T> {
 
-	void onDataChanged();
+	void onDataChanged(DataChangeEvent<T> event);
 }
@@ -0,0 +1,132 @@
+package gui.listeners;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import db.ChangeFeed;
+import db.DB;
+import javafx.application.Platform;
+import model.entities.Department;
+import model.entities.Seller;
+import model.services.ChangeFeedService;
+import model.services.DepartmentService;
+import model.services.SellerService;
+
+/**
+ * Turns changes made by other clients into DataChangeEvents for the open
+ * views. Changed rows are read by id on the feed thread, the sellers of a
+ * burst in one query, and the events are delivered on the JavaFX
+ * Application Thread.
+ * <p>
+ * Views are held weakly, a view that was navigated away from is dropped
+ * without having to unsubscribe.
+ */
+public class RemoteChangeDispatcher {
+
+	private static final List<WeakReference<DataChangeListener<Seller>>> sellerListeners = new CopyOnWriteArrayList<>();
+
+	private static final List<WeakReference<DataChangeListener<Department>>> departmentListeners = new CopyOnWriteArrayList<>();
+
+	private static boolean registered;
+
+	public static void subscribeSellers(DataChangeListener<Seller> listener) {
+		register();
+		sellerListeners.add(new WeakReference<>(listener));
+	}
+
+	public static void subscribeDepartments(DataChangeListener<Department> listener) {
+		register();
+		departmentListeners.add(new WeakReference<>(listener));
+	}
+
+	private static synchronized void register() {
+		if (!registered) {
+			ChangeFeedService.addListener(RemoteChangeDispatcher::onChanges);
+			registered = true;
+		}
+	}
+
+	private static void onChanges(List<ChangeFeed.Change> changes) {
+		var sellerService = new SellerService();
+		var departmentService = new DepartmentService();
+		List<DataChangeEvent<Seller>> sellerEvents = new ArrayList<>();
+		List<DataChangeEvent<Department>> departmentEvents = new ArrayList<>();
+		// the notification comes from the primary, a replica may not have the rows yet
+		DB.getTransactionManager().inTransaction(() -> {
+			Map<Integer, Seller> changedSellers = sellerListeners.isEmpty() ? Map.of()
+					: findChangedSellers(sellerService, changes);
+			for (ChangeFeed.Change change : changes) {
+				if ("seller".equals(change.getTable()) && !sellerListeners.isEmpty()) {
+					sellerEvents.add(toEvent(change, changedSellers::get, id -> {
+						var obj = new Seller();
+						obj.setId(id);
+						return obj;
+					}));
+				} else if ("department".equals(change.getTable()) && !departmentListeners.isEmpty()) {
+					departmentEvents.add(toEvent(change, departmentService::findById, id -> new Department(id, null)));
+				}
+			}
+		});
+		if (!sellerEvents.isEmpty() || !departmentEvents.isEmpty()) {
+			Platform.runLater(() -> {
+				deliver(sellerListeners, sellerEvents);
+				deliver(departmentListeners, departmentEvents);
+			});
+		}
+	}
+
+	private static Map<Integer, Seller> findChangedSellers(SellerService service, List<ChangeFeed.Change> changes) {
+		Set<Integer> ids = new LinkedHashSet<>();
+		for (ChangeFeed.Change change : changes) {
+			if ("seller".equals(change.getTable()) && (change.getType() == ChangeFeed.Change.Type.INSERT
+					|| change.getType() == ChangeFeed.Change.Type.UPDATE)) {
+				ids.add(change.getId());
+			}
+		}
+		Map<Integer, Seller> found = new HashMap<>();
+		if (!ids.isEmpty()) {
+			for (Seller obj : service.findByIds(ids)) {
+				found.put(obj.getId(), obj);
+			}
+		}
+		return found;
+	}
+
+	private static <T> DataChangeEvent<T> toEvent(ChangeFeed.Change change, Function<Integer, T> find,
+			Function<Integer, T> deleted) {
+		switch (change.getType()) {
+		case RELOAD:
+			return DataChangeEvent.reloaded();
+		case DELETE:
+			// the row is gone, only its id is known
+			return DataChangeEvent.deleted(deleted.apply(change.getId()));
+		default:
+			T obj = find.apply(change.getId());
+			// deleted again before we could read it
+			return obj == null ? DataChangeEvent.deleted(deleted.apply(change.getId()))
+					: new DataChangeEvent<>(change.getType() == ChangeFeed.Change.Type.INSERT
+							? DataChangeEvent.Type.INSERTED : DataChangeEvent.Type.UPDATED, obj);
+		}
+	}
+
+	private static <T> void deliver(List<WeakReference<DataChangeListener<T>>> listeners,
+			List<DataChangeEvent<T>> events) {
+		for (var ref : listeners) {
+			DataChangeListener<T> listener = ref.get();
+			if (listener == null) {
+				listeners.remove(ref);
+				continue;
+			}
+			for (DataChangeEvent<T> event : events) {
+				listener.onDataChanged(event);
+			}
+		}
+	}
+}
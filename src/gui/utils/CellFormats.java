@@ -0,0 +1,71 @@
+package gui.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Formatters for table cells. Each one remembers the text it produced per
+ * value, so a cell scrolled back into view is rendered without formatting
+ * or allocating again.
+ * <p>
+ * Formatters are not thread-safe. Create one per column and only use it on
+ * the JavaFX Application Thread. No JavaFX types here, the benchmarks
+ * module compiles this class on its own.
+ */
+public class CellFormats {
+
+	// enough for the rows a user scrolls through, cleared rather than evicted when full
+	private static final int MAX_CACHED = 4096;
+
+	/**
+	 * Fixed decimal places with a '.' separator and no grouping, the same
+	 * text as String.format(Locale.US, "%.2f", value) for 2 places.
+	 */
+	public static Function<Double, String> decimal(int decimalPlaces) {
+		return new Cached<Double>(value -> {
+			if (value.isNaN() || value.isInfinite()) {
+				return value.toString();
+			}
+			// valueOf goes through the shortest decimal form, which Formatter rounds too
+			return BigDecimal.valueOf(value).setScale(decimalPlaces, RoundingMode.HALF_UP).toPlainString();
+		}, Function.identity());
+	}
+
+	public static Function<Date, String> date(String pattern) {
+		var sdf = new SimpleDateFormat(pattern);
+		// dates are mutable, the cache keys on a copy
+		return new Cached<Date>(sdf::format, date -> new Date(date.getTime()));
+	}
+
+	private static class Cached<T> implements Function<T, String> {
+		private final Function<T, String> format;
+		private final Function<T, T> keyOf;
+		private final Map<T, String> texts = new HashMap<>();
+
+		private Cached(Function<T, String> format, Function<T, T> keyOf) {
+			this.format = format;
+			this.keyOf = keyOf;
+		}
+
+		@Override
+		public String apply(T value) {
+			if (value == null) {
+				return null;
+			}
+			String text = texts.get(value);
+			if (text == null) {
+				if (texts.size() >= MAX_CACHED) {
+					texts.clear();
+				}
+				text = format.apply(value);
+				texts.put(keyOf.apply(value), text);
+			}
+			return text;
+		}
+	}
+}
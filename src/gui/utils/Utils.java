@@ -1,16 +1,29 @@
 package gui.utils;
 
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
+import javafx.geometry.Orientation;
 import javafx.scene.Node;
+import javafx.scene.control.Button;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
@@ -20,6 +33,26 @@ public class Utils {
 		return (Stage) ((Node) e.getSource()).getScene().getWindow();
 	}
 
+	public static Path chooseExportFile(Stage stage, String initialName) {
+		var chooser = new FileChooser();
+		chooser.setTitle("Export");
+		chooser.setInitialFileName(initialName);
+		chooser.getExtensionFilters().addAll(
+				new FileChooser.ExtensionFilter("CSV", "*.csv"),
+				new FileChooser.ExtensionFilter("JSON", "*.json"),
+				new FileChooser.ExtensionFilter("CSV (gzip)", "*.csv.gz"),
+				new FileChooser.ExtensionFilter("JSON (gzip)", "*.json.gz"));
+		File file = chooser.showSaveDialog(stage);
+		if (file == null) {
+			return null;
+		}
+		String extension = chooser.getSelectedExtensionFilter().getExtensions().get(0).substring(1);
+		if (!file.getName().toLowerCase().endsWith(extension)) {
+			file = new File(file.getParentFile(), file.getName() + extension);
+		}
+		return file.toPath();
+	}
+
 	public static Integer tryParseToInt(String str) {
 		try {
 			return Integer.parseInt(str);
@@ -36,40 +69,97 @@ public class Utils {
 		}
 	}
 
+	public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+		future.whenCompleteAsync((result, error) -> {
+			if (error == null) {
+				onSuccess.accept(result);
+				return;
+			}
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+			if (!(cause instanceof CancellationException)) {
+				onFailure.accept(cause);
+			}
+		}, Platform::runLater);
+	}
+
 	public static <T> void formatTableColumnDate(TableColumn<T, Date> tableColumn, String format) {
-		tableColumn.setCellFactory(column -> {
-			TableCell<T, Date> cell = new TableCell<T, Date>() {
-				private SimpleDateFormat sdf = new SimpleDateFormat(format);
-
-				@Override
-				protected void updateItem(Date item, boolean empty) {
-					super.updateItem(item, empty);
-					if (empty) {
-						setText(null);
-					} else {
-						setText(sdf.format(item));
-					}
+		formatTableColumn(tableColumn, CellFormats.date(format));
+	}
+
+	public static <T> void formatTableColumnDouble(TableColumn<T, Double> tableColumn, int decimalPlaces) {
+		formatTableColumn(tableColumn, CellFormats.decimal(decimalPlaces));
+	}
+
+	/**
+	 * Cells share the column's formatter, so a value is formatted once however
+	 * often it is scrolled past. Empty cells and null items show nothing.
+	 */
+	public static <T, V> void formatTableColumn(TableColumn<T, V> tableColumn, Function<V, String> formatter) {
+		tableColumn.setCellFactory(column -> new TableCell<T, V>() {
+			@Override
+			protected void updateItem(V item, boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty ? null : formatter.apply(item));
+			}
+		});
+	}
+
+	/**
+	 * Makes a column of row buttons, one per action. The buttons and their
+	 * handlers are built once per cell, a press looks up the item by row
+	 * index, so rendering a row allocates nothing. The column needs no cell
+	 * value factory.
+	 */
+	@SafeVarargs
+	public static <T> void formatTableColumnActions(TableColumn<T, Void> tableColumn, CellAction<T>... actions) {
+		tableColumn.setSortable(false);
+		tableColumn.setCellFactory(column -> new TableCell<T, Void>() {
+			private final HBox buttons = new HBox(5);
+
+			{
+				for (CellAction<T> action : actions) {
+					var button = new Button(action.text);
+					button.setOnAction(event -> {
+						int index = getIndex();
+						var items = getTableView().getItems();
+						if (index >= 0 && index < items.size()) {
+							action.handler.accept(items.get(index), event);
+						}
+					});
+					buttons.getChildren().add(button);
 				}
-			};
-			return cell;
+			}
+
+			@Override
+			protected void updateItem(Void item, boolean empty) {
+				super.updateItem(item, empty);
+				setGraphic(empty ? null : buttons);
+			}
 		});
 	}
 
-	public static <T> void formatTableColumnDouble(TableColumn<T, Double> tableColumn, int decimalPlaces) {
-		tableColumn.setCellFactory(column -> {
-			TableCell<T, Double> cell = new TableCell<T, Double>() {
-				@Override
-				protected void updateItem(Double item, boolean empty) {
-					super.updateItem(item, empty);
-					if (empty) {
-						setText(null);
-					} else {
-						Locale.setDefault(Locale.US);
-						setText(String.format("%." + decimalPlaces + "f", item));
-					}
+	public static class CellAction<T> {
+		private final String text;
+		private final BiConsumer<T, ActionEvent> handler;
+
+		public CellAction(String text, BiConsumer<T, ActionEvent> handler) {
+			this.text = text;
+			this.handler = handler;
+		}
+	}
+
+	public static void onScrolledToEnd(TableView<?> tableView, Runnable action) {
+		tableView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+			for (Node node : tableView.lookupAll(".scroll-bar")) {
+				if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+					var scrollBar = (ScrollBar) node;
+					scrollBar.valueProperty().addListener((o, oldValue, newValue) -> {
+						if (newValue.doubleValue() >= scrollBar.getMax() * 0.9) {
+							action.run();
+						}
+					});
 				}
-			};
-			return cell;
+			}
 		});
 	}
 
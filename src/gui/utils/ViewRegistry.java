@@ -0,0 +1,126 @@
+package gui.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.Pane;
+import model.services.ServiceExecutor;
+
+/**
+ * Parses each FXML view once and keeps its nodes and controller for the
+ * rest of the session, so navigating back to a view reuses it with the data
+ * it already loaded.
+ * <p>
+ * Views can be preloaded off the JavaFX Application Thread; get() waits
+ * for a preload still in flight instead of parsing the file again. Views
+ * must only be attached to the scene on the Application Thread.
+ */
+public class ViewRegistry {
+
+	private static final Map<String, CompletableFuture<View<?>>> views = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads the views in the background. A view that fails to load is
+	 * forgotten, get() tries it again.
+	 */
+	public static CompletableFuture<Void> preload(String... urls) {
+		List<CompletableFuture<View<?>>> futures = new ArrayList<>();
+		for (String url : urls) {
+			futures.add(views.computeIfAbsent(url,
+					key -> CompletableFuture.<View<?>> supplyAsync(() -> load(key), ServiceExecutor.get())
+							.whenComplete((view, e) -> {
+								if (e != null) {
+									views.remove(key);
+								}
+							})));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> View<T> get(String url) throws IOException {
+		CompletableFuture<View<?>> future = views.get(url);
+		if (future == null) {
+			View<?> view;
+			try {
+				view = load(url);
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			future = views.putIfAbsent(url, CompletableFuture.completedFuture(view));
+			if (future == null) {
+				return (View<T>) view;
+			}
+		}
+		try {
+			return (View<T>) future.join();
+		} catch (CompletionException e) {
+			views.remove(url, future);
+			return get(url);
+		}
+	}
+
+	public static boolean isLoaded(String url) {
+		CompletableFuture<View<?>> future = views.get(url);
+		return future != null && future.isDone() && !future.isCompletedExceptionally();
+	}
+
+	private static View<?> load(String url) {
+		try {
+			var loader = new FXMLLoader(ViewRegistry.class.getResource(url));
+			Parent root = loader.load();
+			return new View<>(root, loader.getController());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static class View<T> {
+		private final Parent root;
+		private final List<Node> content;
+		private final T controller;
+		private boolean initialized;
+
+		private View(Parent root, T controller) {
+			this.root = root;
+			// the list views are merged into the main window, which takes the children out of root
+			this.content = root instanceof Pane ? Collections.unmodifiableList(new ArrayList<>(((Pane) root).getChildren()))
+					: List.of(root);
+			this.controller = controller;
+		}
+
+		public Parent getRoot() {
+			return root;
+		}
+
+		public List<Node> getContent() {
+			return content;
+		}
+
+		public T getController() {
+			return controller;
+		}
+
+		/**
+		 * True the first time it is called, for the one-off setup that loads
+		 * the view's data.
+		 */
+		public boolean initialize() {
+			if (initialized) {
+				return false;
+			}
+			initialized = true;
+			return true;
+		}
+	}
+}
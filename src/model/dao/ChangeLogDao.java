@@ -0,0 +1,20 @@
+package model.dao;
+
+import java.util.List;
+
+/**
+ * Marks and tombstones for fetching only what changed since a previous
+ * read. See V7__change_tracking.sql.
+ */
+public interface ChangeLogDao {
+
+	/**
+	 * The oldest transaction still running. Rows written by transactions
+	 * from this mark on have change_txid at or above it, so reading
+	 * "changed since mark" next time can repeat rows but never miss any.
+	 */
+	long currentChangeMark();
+
+	List<Integer> findDeletedSince(String table, long changeMark);
+
+}
@@ -1,17 +1,39 @@
 package model.dao;
 
 import db.DB;
+import model.dao.impl.ChangeLogDaoJDBC;
 import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.InstrumentedChangeLogDao;
+import model.dao.impl.InstrumentedDepartmentDao;
+import model.dao.impl.InstrumentedReportDao;
+import model.dao.impl.InstrumentedSellerDao;
+import model.dao.impl.ReportDaoJDBC;
 import model.dao.impl.SellerDaoJDBC;
 
 public class DaoFactory {
 	
+	private static final DepartmentIdentityMap departments = new DepartmentIdentityMap();
+	
 	public static SellerDao createSellerDao() {
-		return new SellerDaoJDBC(DB.getConnection());
+		return new InstrumentedSellerDao(new SellerDaoJDBC(DB.getDataSource(), DB.getReadDataSource(), departments));
 	}
 	
 	public static DepartmentDao createDepartmentDao() {
-		return new DepartmentDaoJDBC(DB.getConnection());
+		return new InstrumentedDepartmentDao(new DepartmentDaoJDBC(DB.getDataSource(), DB.getReadDataSource(), departments));
+	}
+	
+	public static ReportDao createReportDao() {
+		boolean summaryTable = Boolean.parseBoolean(DB.loadProperties().getProperty("report.summaryTable", "true"));
+		return new InstrumentedReportDao(new ReportDaoJDBC(DB.getReadDataSource(), departments, summaryTable));
+	}
+	
+	// the mark must come from the primary, and reading it is not a write
+	public static ChangeLogDao createChangeLogDao() {
+		return new InstrumentedChangeLogDao(new ChangeLogDaoJDBC(DB.getTransactionManager()));
+	}
+	
+	public static DepartmentIdentityMap getDepartmentIdentityMap() {
+		return departments;
 	}
 
 }
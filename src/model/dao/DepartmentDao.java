@@ -1,6 +1,8 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import model.entities.Department;
 
@@ -8,8 +10,12 @@ public interface DepartmentDao {
 	
 	void insert(Department obj);
 	void update(Department obj);
+	void insertAll(Collection<Department> list);
+	void updateAll(Collection<Department> list);
 	void deleteById(Integer id);
 	Department findById(Integer id);
 	List<Department> findAll();
+	Stream<Department> streamAll();
+	List<Department> findChangedSince(long changeMark);
 
 }
@@ -0,0 +1,74 @@
+package model.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.entities.Department;
+
+/**
+ * Keeps one Department instance per id for the whole session, so every DAO
+ * resolves department rows to the same object.
+ * <p>
+ * Instances are never changed once they are in the map, they are read on
+ * the JavaFX Application Thread while rows are resolved on worker threads.
+ * A row with a new name or version replaces the instance instead; objects
+ * already holding the old one keep it until they are read again, the
+ * services drop their cached sellers when a department changes.
+ */
+public class DepartmentIdentityMap {
+
+	private final Map<Integer, Department> map = new ConcurrentHashMap<>();
+
+	public Department resolve(Integer id, String name) {
+		return resolve(id, name, null);
+	}
+
+	/**
+	 * Returns the shared instance for id, replaced by one with the name and,
+	 * when known, the version of the row just read if those differ. A row
+	 * with an older version than the shared instance, read from a replica
+	 * that is behind, leaves it as it is.
+	 */
+	public Department resolve(Integer id, String name, Integer version) {
+		return map.compute(id, (key, dep) -> {
+			if (dep == null) {
+				return copyOf(id, name, version);
+			}
+			if (version != null && dep.getVersion() != null && version < dep.getVersion()) {
+				return dep;
+			}
+			boolean renamed = name != null && !name.equals(dep.getName());
+			boolean newVersion = version != null && !version.equals(dep.getVersion());
+			if (!renamed && !newVersion) {
+				return dep;
+			}
+			return copyOf(id, renamed ? name : dep.getName(), newVersion ? version : dep.getVersion());
+		});
+	}
+
+	/**
+	 * Resolves a department the application wrote. The map keeps a copy,
+	 * the caller's object stays its own.
+	 */
+	public Department resolve(Department obj) {
+		return resolve(obj.getId(), obj.getName(), obj.getVersion());
+	}
+
+	private static Department copyOf(Integer id, String name, Integer version) {
+		var dep = new Department(id, name);
+		dep.setVersion(version);
+		return dep;
+	}
+
+	public void remove(Integer id) {
+		map.remove(id);
+	}
+
+	public void clear() {
+		map.clear();
+	}
+
+	public int size() {
+		return map.size();
+	}
+}
@@ -0,0 +1,11 @@
+package model.dao;
+
+import java.util.List;
+
+import model.entities.DepartmentSummary;
+
+public interface ReportDao {
+
+	List<DepartmentSummary> findDepartmentSummaries();
+
+}
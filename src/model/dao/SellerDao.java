@@ -1,7 +1,10 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import db.QueryCancel;
 import model.entities.Department;
 import model.entities.Seller;
 
@@ -9,9 +12,17 @@ public interface SellerDao {
 	
 	void insert(Seller obj);
 	void update(Seller obj);
+	void insertAll(Collection<Seller> list);
+	void updateAll(Collection<Seller> list);
 	void deleteById(Integer id);
 	Seller findById(Integer id);
+	List<Seller> findByIds(Collection<Integer> ids);
 	List<Seller> findAll();
 	List<Seller> findByDepartment(Department department);
+	List<Seller> findPage(Seller after, int pageSize);
+	List<Seller> search(SellerFilter filter, SellerSort sort, Seller after, int pageSize, QueryCancel cancel);
+	Stream<Seller> streamAll();
+	Stream<Seller> streamByDepartment(Department department);
+	List<Seller> findChangedSince(long changeMark);
 
 }
@@ -0,0 +1,91 @@
+package model.dao;
+
+import java.util.Date;
+
+import model.entities.Department;
+
+/**
+ * Search criteria for sellers. Null fields are not filtered on.
+ */
+public class SellerFilter {
+
+	private String namePrefix;
+	private String email;
+	private Department department;
+	private Double minBaseSalary;
+	private Double maxBaseSalary;
+	private Date minBirthDate;
+	private Date maxBirthDate;
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = blankToNull(namePrefix);
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(String email) {
+		this.email = blankToNull(email);
+	}
+
+	public Department getDepartment() {
+		return department;
+	}
+
+	public void setDepartment(Department department) {
+		this.department = department;
+	}
+
+	public Double getMinBaseSalary() {
+		return minBaseSalary;
+	}
+
+	public void setMinBaseSalary(Double minBaseSalary) {
+		this.minBaseSalary = minBaseSalary;
+	}
+
+	public Double getMaxBaseSalary() {
+		return maxBaseSalary;
+	}
+
+	public void setMaxBaseSalary(Double maxBaseSalary) {
+		this.maxBaseSalary = maxBaseSalary;
+	}
+
+	public Date getMinBirthDate() {
+		return minBirthDate;
+	}
+
+	public void setMinBirthDate(Date minBirthDate) {
+		this.minBirthDate = minBirthDate;
+	}
+
+	public Date getMaxBirthDate() {
+		return maxBirthDate;
+	}
+
+	public void setMaxBirthDate(Date maxBirthDate) {
+		this.maxBirthDate = maxBirthDate;
+	}
+
+	public boolean isEmpty() {
+		return namePrefix == null && email == null && department == null && minBaseSalary == null
+				&& maxBaseSalary == null && minBirthDate == null && maxBirthDate == null;
+	}
+
+	private static String blankToNull(String str) {
+		return str == null || str.trim().isEmpty() ? null : str.trim();
+	}
+
+	@Override
+	public String toString() {
+		return "SellerFilter [namePrefix=" + namePrefix + ", email=" + email + ", department=" + department
+				+ ", minBaseSalary=" + minBaseSalary + ", maxBaseSalary=" + maxBaseSalary + ", minBirthDate="
+				+ minBirthDate + ", maxBirthDate=" + maxBirthDate + "]";
+	}
+}
@@ -0,0 +1,100 @@
+package model.dao;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+import model.entities.Seller;
+
+/**
+ * Sort order for seller queries. Only the whitelisted columns below can be
+ * pushed into ORDER BY; ties are broken by id so keyset paging stays stable.
+ * comparator() orders rows in memory the way ORDER BY does, text columns in
+ * TextOrder.
+ */
+public class SellerSort {
+
+	public enum Column {
+		ID("seller.Id", Seller::getId, false),
+		NAME("seller.Name", Seller::getName, true),
+		EMAIL("seller.Email", Seller::getEmail, true),
+		BIRTH_DATE("seller.BirthDate", Seller::getBirthDate, false),
+		BASE_SALARY("seller.BaseSalary", Seller::getBaseSalary, false);
+
+		private final String sql;
+		private final Function<Seller, Comparable<?>> getter;
+		private final boolean text;
+
+		private Column(String sql, Function<Seller, Comparable<?>> getter, boolean text) {
+			this.sql = sql;
+			this.getter = getter;
+			this.text = text;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public Object valueOf(Seller obj) {
+			return getter.apply(obj);
+		}
+	}
+
+	public static final SellerSort DEFAULT = new SellerSort(Column.NAME, true);
+
+	private final Column column;
+	private final boolean ascending;
+
+	public SellerSort(Column column, boolean ascending) {
+		this.column = column;
+		this.ascending = ascending;
+	}
+
+	public Column getColumn() {
+		return column;
+	}
+
+	public boolean isAscending() {
+		return ascending;
+	}
+
+	public String orderBy() {
+		String direction = ascending ? "" : " DESC";
+		if (column == Column.ID) {
+			return column.getSql() + direction;
+		}
+		return column.getSql() + direction + ", seller.Id" + direction;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Comparator<Seller> comparator() {
+		Comparator<Seller> order = column.text
+				? Comparator.comparing(obj -> (String) column.valueOf(obj), TextOrder.COMPARATOR)
+				: Comparator.comparing(obj -> (Comparable) column.valueOf(obj));
+		if (column != Column.ID) {
+			order = order.thenComparing(Seller::getId);
+		}
+		return ascending ? order : order.reversed();
+	}
+
+	@Override
+	public int hashCode() {
+		return column.hashCode() * 31 + (ascending ? 1 : 0);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SellerSort other = (SellerSort) obj;
+		return column == other.column && ascending == other.ascending;
+	}
+
+	@Override
+	public String toString() {
+		return "SellerSort [column=" + column + ", ascending=" + ascending + "]";
+	}
+}
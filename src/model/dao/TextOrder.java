@@ -0,0 +1,33 @@
+package model.dao;
+
+import java.util.Comparator;
+
+/**
+ * The order the database sorts text columns in, for the places that sort
+ * rows in memory and must agree with ORDER BY.
+ * <p>
+ * seller.Name, seller.Email and department.Name use the "C" collation
+ * (see V8__seller_text_collation.sql), which compares UTF-8 bytes: that is
+ * code point order. String.compareTo compares UTF-16 chars, which differs for
+ * characters outside the Basic Multilingual Plane.
+ */
+public final class TextOrder {
+
+	public static final Comparator<String> COMPARATOR = TextOrder::compare;
+
+	private TextOrder() {
+	}
+
+	public static int compare(String a, String b) {
+		int i = 0;
+		while (i < a.length() && i < b.length()) {
+			int ca = a.codePointAt(i);
+			int cb = b.codePointAt(i);
+			if (ca != cb) {
+				return Integer.compare(ca, cb);
+			}
+			i += Character.charCount(ca);
+		}
+		return Integer.compare(a.length() - i, b.length() - i);
+	}
+}
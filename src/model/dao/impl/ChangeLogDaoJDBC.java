@@ -0,0 +1,84 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import model.dao.ChangeLogDao;
+
+public class ChangeLogDaoJDBC implements ChangeLogDao {
+
+	private DataSource dataSource;
+
+	public ChangeLogDaoJDBC(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	public long currentChangeMark() {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+
+		try {
+			conn = dataSource.getConnection();
+			query = conn.prepareStatement("SELECT txid_snapshot_xmin(txid_current_snapshot())");
+
+			result = query.executeQuery();
+			result.next();
+			return result.getLong(1);
+
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+
+		}
+	}
+
+	@Override
+	public List<Integer> findDeletedSince(String table, long changeMark) {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+
+		try {
+			conn = dataSource.getConnection();
+			query = conn.prepareStatement(
+					"SELECT id FROM deleted_row WHERE table_name = ? AND change_txid >= ?");
+
+			query.setString(1, table);
+			query.setLong(2, changeMark);
+			result = query.executeQuery();
+
+			List<Integer> ids = new ArrayList<>();
+			while (result.next()) {
+				ids.add(result.getInt(1));
+			}
+			return ids;
+
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+
+		}
+	}
+}
@@ -6,26 +6,45 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
 
 import model.dao.DepartmentDao;
+import model.dao.DepartmentIdentityMap;
 import db.DB;
+import db.DbConflictException;
 import db.DbException;
 import db.DbIntegrityException;
 import model.entities.Department;
 
 public class DepartmentDaoJDBC implements DepartmentDao { 
 	
-	private Connection conn;
+	private DataSource dataSource;
+
+	// reads may go to a replica, writes always go to dataSource
+	private DataSource readDataSource;
+
+	private DepartmentIdentityMap departments;
+
+	public DepartmentDaoJDBC(DataSource dataSource, DepartmentIdentityMap departments) {
+		this(dataSource, dataSource, departments);
+	}
 
-	public DepartmentDaoJDBC(Connection conn) {
-		this.conn = conn;
+	public DepartmentDaoJDBC(DataSource dataSource, DataSource readDataSource, DepartmentIdentityMap departments) {
+		this.dataSource = dataSource;
+		this.readDataSource = readDataSource;
+		this.departments = departments;
 	}
 
 	@Override
 	public void insert(Department obj) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
 					"INSERT INTO department (name) VALUES (?)",
 					Statement.RETURN_GENERATED_KEYS
@@ -40,6 +59,8 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 				if (result.next()) {
 					int id = result.getInt(1);
 					obj.setId(id);
+					obj.setVersion(0);
+					departments.resolve(obj);
 				}
 				DB.closeResultSet(result);
 			} else {
@@ -48,58 +69,222 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 		}
 		
 	}
 
 	@Override
 	public void update(Department obj) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
-					"UPDATE department SET name=? WHERE id=?"
+					"UPDATE department SET name=?, version=version+1 WHERE id=? AND version=?"
 					);
 			
 			query.setString(1, obj.getName());
 			query.setInt(2, obj.getId());
+			query.setInt(3, versionOf(obj));
 			
-			query.executeUpdate();
+			if (query.executeUpdate() == 0) {
+				throw conflict(obj);
+			}
+			obj.setVersion(obj.getVersion() + 1);
+			departments.resolve(obj);
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 
 		
 	}
 
+	@Override
+	public void insertAll(Collection<Department> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		Connection conn = null;
+		PreparedStatement query = null;
+		boolean autoCommit = true;
+		try {
+			conn = dataSource.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			
+			int batchSize = DB.getIntProperty("batchSize", 500);
+			query = conn.prepareStatement(
+					"INSERT INTO department (name) VALUES (?)",
+					Statement.RETURN_GENERATED_KEYS
+					);
+			
+			List<Department> pending = new ArrayList<>(batchSize);
+			for (Department obj : list) {
+				query.setString(1, obj.getName());
+				query.addBatch();
+				pending.add(obj);
+				
+				if (pending.size() == batchSize) {
+					executeInsertBatch(query, pending);
+				}
+			}
+			executeInsertBatch(query, pending);
+			
+			if (autoCommit) {
+				conn.commit();
+			}
+		}
+		catch (SQLException e) {
+			rollback(conn, autoCommit);
+			list.forEach(obj -> obj.setId(null));
+			throw new DbException(e);
+		}
+		finally {
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+		}
+	}
+
+	private void executeInsertBatch(PreparedStatement query, List<Department> pending) throws SQLException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		query.executeBatch();
+		
+		ResultSet result = query.getGeneratedKeys();
+		int i = 0;
+		while (result.next() && i < pending.size()) {
+			pending.get(i).setId(result.getInt(1));
+			pending.get(i).setVersion(0);
+			departments.resolve(pending.get(i++));
+		}
+		DB.closeResultSet(result);
+		pending.clear();
+	}
+
+	@Override
+	public void updateAll(Collection<Department> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		Connection conn = null;
+		PreparedStatement query = null;
+		boolean autoCommit = true;
+		try {
+			conn = dataSource.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			
+			int batchSize = DB.getIntProperty("batchSize", 500);
+			query = conn.prepareStatement(
+					"UPDATE department SET name=?, version=version+1 WHERE id=? AND version=?"
+					);
+			
+			List<Department> pending = new ArrayList<>(batchSize);
+			for (Department obj : list) {
+				query.setString(1, obj.getName());
+				query.setInt(2, obj.getId());
+				query.setInt(3, versionOf(obj));
+				query.addBatch();
+				pending.add(obj);
+				
+				if (pending.size() == batchSize) {
+					executeUpdateBatch(query, pending);
+				}
+			}
+			executeUpdateBatch(query, pending);
+			
+			if (autoCommit) {
+				conn.commit();
+			}
+			list.forEach(obj -> obj.setVersion(obj.getVersion() + 1));
+			list.forEach(departments::resolve);
+		}
+		catch (SQLException e) {
+			rollback(conn, autoCommit);
+			throw new DbException(e);
+		}
+		catch (DbConflictException e) {
+			rollback(conn, autoCommit);
+			throw e;
+		}
+		finally {
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+		}
+	}
+
+	private static void executeUpdateBatch(PreparedStatement query, List<Department> pending) throws SQLException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		int[] counts = query.executeBatch();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				throw conflict(pending.get(i));
+			}
+		}
+		pending.clear();
+	}
+
+	private static int versionOf(Department obj) {
+		if (obj.getVersion() == null) {
+			throw new IllegalStateException("Department " + obj.getId() + " has no version, it must be read before updating");
+		}
+		return obj.getVersion();
+	}
+
+	private static DbConflictException conflict(Department obj) {
+		return new DbConflictException("Department " + obj.getId() + " was changed or removed by another user");
+	}
+
+	private static void rollback(Connection conn, boolean autoCommit) {
+		// inside a caller's transaction the caller decides, otherwise undo the partial batch
+		if (conn != null && autoCommit) {
+			try {
+				conn.rollback();
+			}
+			catch (SQLException e) {
+				throw new DbException(e);
+			}
+		}
+	}
+
 	@Override
 	public void deleteById(Integer id) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
 					"DELETE FROM department WHERE id=?"
 					);
 			query.setInt(1, id);
 			
 			query.executeUpdate();
+			departments.remove(id);
 			
 		}
 		catch (SQLException e) {
-			throw new DbIntegrityException(e.getMessage());
+			throw new DbIntegrityException(e);
 			
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 		
@@ -107,10 +292,12 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 
 	@Override
 	public Department findById(Integer id) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		ResultSet result = null;
 		
 		try {
+			conn = readDataSource.getConnection();
 			query = conn.prepareStatement(
 					"SELECT * FROM department WHERE id = ?"
 					);
@@ -128,33 +315,95 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeResultSet(result);
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 	
 	}
 	
+	@Override
+	public Stream<Department> streamAll() {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+		
+		try {
+			conn = readDataSource.getConnection();
+			// the PostgreSQL driver only uses a cursor (fetchSize) outside autocommit
+			conn.setAutoCommit(false);
+			query = conn.prepareStatement(
+					"SELECT * FROM department ORDER BY Name",
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY
+					);
+			query.setFetchSize(DB.getIntProperty("fetchSize", 500));
+			
+			result = query.executeQuery();
+			
+			return ResultSetStream.of(conn, query, result, this::instantiateDepartment);
+			
+		}
+		catch (SQLException e) {
+			ResultSetStream.close(conn, query, result);
+			throw new DbException(e);
+			
+		}
+	}
+
 	private Department instantiateDepartment(ResultSet result) throws SQLException {
-		var dep = new Department();
-		dep.setId(result.getInt("id"));
-		dep.setName(result.getString("name"));
+		return departments.resolve(result.getInt("id"), result.getString("name"), result.getInt("version"));
+	}
+
+	@Override
+	public List<Department> findChangedSince(long changeMark) {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
 		
-		return dep;
+		try {
+			conn = readDataSource.getConnection();
+			query = conn.prepareStatement(
+					"SELECT * FROM department WHERE change_txid >= ?"
+					);
+			
+			query.setLong(1, changeMark);
+			result = query.executeQuery();
+			
+			List<Department> departments = new ArrayList<>();
+			while (result.next()) {
+				departments.add(instantiateDepartment(result));
+			}
+			return departments;
+			
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+			
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+			
+		}
 	}
 
 	@Override
 	public List<Department> findAll() {
+		Connection conn = null;
 		PreparedStatement query = null;
 		ResultSet result = null;
 		
 		try {
+			conn = readDataSource.getConnection();
 			query = conn.prepareStatement(
-					"SELECT * FROM department"
+					"SELECT * FROM department ORDER BY Name, Id"
 					);
 			
 			result = query.executeQuery();
@@ -173,12 +422,13 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeResultSet(result);
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 
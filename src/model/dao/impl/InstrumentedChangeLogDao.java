@@ -0,0 +1,30 @@
+package model.dao.impl;
+
+import java.util.List;
+
+import db.QueryMetrics;
+import model.dao.ChangeLogDao;
+
+/**
+ * Records latency, row count and errors of every ChangeLogDao call in
+ * QueryMetrics.
+ */
+public class InstrumentedChangeLogDao implements ChangeLogDao {
+
+	private final ChangeLogDao dao;
+
+	public InstrumentedChangeLogDao(ChangeLogDao dao) {
+		this.dao = dao;
+	}
+
+	@Override
+	public long currentChangeMark() {
+		return QueryMetrics.record("ChangeLogDao.currentChangeMark", dao::currentChangeMark, mark -> 1);
+	}
+
+	@Override
+	public List<Integer> findDeletedSince(String table, long changeMark) {
+		return QueryMetrics.record("ChangeLogDao.findDeletedSince", () -> dao.findDeletedSince(table, changeMark),
+				List::size);
+	}
+}
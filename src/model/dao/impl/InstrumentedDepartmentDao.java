@@ -0,0 +1,68 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import db.QueryMetrics;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Records latency, row count and errors of every DepartmentDao call in
+ * QueryMetrics.
+ */
+public class InstrumentedDepartmentDao implements DepartmentDao {
+
+	private final DepartmentDao dao;
+
+	public InstrumentedDepartmentDao(DepartmentDao dao) {
+		this.dao = dao;
+	}
+
+	@Override
+	public void insert(Department obj) {
+		QueryMetrics.record("DepartmentDao.insert", () -> dao.insert(obj), 1);
+	}
+
+	@Override
+	public void update(Department obj) {
+		QueryMetrics.record("DepartmentDao.update", () -> dao.update(obj), 1);
+	}
+
+	@Override
+	public void insertAll(Collection<Department> list) {
+		QueryMetrics.record("DepartmentDao.insertAll", () -> dao.insertAll(list), list.size());
+	}
+
+	@Override
+	public void updateAll(Collection<Department> list) {
+		QueryMetrics.record("DepartmentDao.updateAll", () -> dao.updateAll(list), list.size());
+	}
+
+	@Override
+	public void deleteById(Integer id) {
+		QueryMetrics.record("DepartmentDao.deleteById", () -> dao.deleteById(id), 1);
+	}
+
+	@Override
+	public Department findById(Integer id) {
+		return QueryMetrics.record("DepartmentDao.findById", () -> dao.findById(id), obj -> 1);
+	}
+
+	@Override
+	public List<Department> findAll() {
+		return QueryMetrics.record("DepartmentDao.findAll", dao::findAll, List::size);
+	}
+
+	@Override
+	public Stream<Department> streamAll() {
+		return InstrumentedSellerDao.instrument("DepartmentDao.streamAll", dao.streamAll());
+	}
+
+	@Override
+	public List<Department> findChangedSince(long changeMark) {
+		return QueryMetrics.record("DepartmentDao.findChangedSince", () -> dao.findChangedSince(changeMark),
+				List::size);
+	}
+}
@@ -0,0 +1,25 @@
+package model.dao.impl;
+
+import java.util.List;
+
+import db.QueryMetrics;
+import model.dao.ReportDao;
+import model.entities.DepartmentSummary;
+
+/**
+ * Records latency, row count and errors of every ReportDao call in
+ * QueryMetrics.
+ */
+public class InstrumentedReportDao implements ReportDao {
+
+	private final ReportDao dao;
+
+	public InstrumentedReportDao(ReportDao dao) {
+		this.dao = dao;
+	}
+
+	@Override
+	public List<DepartmentSummary> findDepartmentSummaries() {
+		return QueryMetrics.record("ReportDao.findDepartmentSummaries", dao::findDepartmentSummaries, List::size);
+	}
+}
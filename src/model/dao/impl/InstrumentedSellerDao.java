@@ -0,0 +1,106 @@
+package model.dao.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import db.QueryCancel;
+import db.QueryMetrics;
+import model.dao.SellerDao;
+import model.dao.SellerFilter;
+import model.dao.SellerSort;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Records latency, row count and errors of every SellerDao call in
+ * QueryMetrics.
+ */
+public class InstrumentedSellerDao implements SellerDao {
+
+	private final SellerDao dao;
+
+	public InstrumentedSellerDao(SellerDao dao) {
+		this.dao = dao;
+	}
+
+	@Override
+	public void insert(Seller obj) {
+		QueryMetrics.record("SellerDao.insert", () -> dao.insert(obj), 1);
+	}
+
+	@Override
+	public void update(Seller obj) {
+		QueryMetrics.record("SellerDao.update", () -> dao.update(obj), 1);
+	}
+
+	@Override
+	public void insertAll(Collection<Seller> list) {
+		QueryMetrics.record("SellerDao.insertAll", () -> dao.insertAll(list), list.size());
+	}
+
+	@Override
+	public void updateAll(Collection<Seller> list) {
+		QueryMetrics.record("SellerDao.updateAll", () -> dao.updateAll(list), list.size());
+	}
+
+	@Override
+	public void deleteById(Integer id) {
+		QueryMetrics.record("SellerDao.deleteById", () -> dao.deleteById(id), 1);
+	}
+
+	@Override
+	public Seller findById(Integer id) {
+		return QueryMetrics.record("SellerDao.findById", () -> dao.findById(id), obj -> 1);
+	}
+
+	@Override
+	public List<Seller> findByIds(Collection<Integer> ids) {
+		return QueryMetrics.record("SellerDao.findByIds", () -> dao.findByIds(ids), List::size);
+	}
+
+	@Override
+	public List<Seller> findAll() {
+		return QueryMetrics.record("SellerDao.findAll", dao::findAll, List::size);
+	}
+
+	@Override
+	public List<Seller> findByDepartment(Department department) {
+		return QueryMetrics.record("SellerDao.findByDepartment", () -> dao.findByDepartment(department), List::size);
+	}
+
+	@Override
+	public List<Seller> findPage(Seller after, int pageSize) {
+		return QueryMetrics.record("SellerDao.findPage", () -> dao.findPage(after, pageSize), List::size);
+	}
+
+	@Override
+	public List<Seller> search(SellerFilter filter, SellerSort sort, Seller after, int pageSize, QueryCancel cancel) {
+		return QueryMetrics.record("SellerDao.search", () -> dao.search(filter, sort, after, pageSize, cancel),
+				List::size);
+	}
+
+	@Override
+	public Stream<Seller> streamAll() {
+		return instrument("SellerDao.streamAll", dao.streamAll());
+	}
+
+	@Override
+	public Stream<Seller> streamByDepartment(Department department) {
+		return instrument("SellerDao.streamByDepartment", dao.streamByDepartment(department));
+	}
+
+	@Override
+	public List<Seller> findChangedSince(long changeMark) {
+		return QueryMetrics.record("SellerDao.findChangedSince", () -> dao.findChangedSince(changeMark), List::size);
+	}
+
+	static <T> Stream<T> instrument(String operation, Stream<T> stream) {
+		// a stream is timed from open to close, rows are counted as they are consumed
+		long start = System.nanoTime();
+		var rows = new LongAdder();
+		return stream.peek(obj -> rows.increment())
+				.onClose(() -> QueryMetrics.record(operation, System.nanoTime() - start, rows.sum(), false));
+	}
+}
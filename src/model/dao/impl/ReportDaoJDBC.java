@@ -0,0 +1,89 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DbException;
+import model.dao.DepartmentIdentityMap;
+import model.dao.ReportDao;
+import model.entities.DepartmentSummary;
+
+public class ReportDaoJDBC implements ReportDao {
+
+	// one row per department, kept up to date by the seller triggers
+	private static final String SUMMARY_TABLE_QUERY =
+			"SELECT department.Id AS DepartmentId, department.Name AS DepName, " +
+			"COALESCE(department_summary.SellerCount, 0) AS SellerCount, " +
+			"COALESCE(department_summary.TotalSalary, 0) AS TotalSalary, " +
+			"department_summary.MinSalary, department_summary.MaxSalary " +
+			"FROM department LEFT JOIN department_summary " +
+			"ON department_summary.DepartmentId = department.Id " +
+			"ORDER BY department.Name";
+
+	private static final String GROUP_BY_QUERY =
+			"SELECT department.Id AS DepartmentId, department.Name AS DepName, " +
+			"COUNT(seller.Id) AS SellerCount, " +
+			"COALESCE(SUM(seller.BaseSalary), 0) AS TotalSalary, " +
+			"MIN(seller.BaseSalary) AS MinSalary, MAX(seller.BaseSalary) AS MaxSalary " +
+			"FROM department LEFT JOIN seller " +
+			"ON seller.DepartmentId = department.Id " +
+			"GROUP BY department.Id, department.Name " +
+			"ORDER BY department.Name";
+
+	private DataSource dataSource;
+
+	private DepartmentIdentityMap departments;
+
+	private boolean useSummaryTable;
+
+	public ReportDaoJDBC(DataSource dataSource, DepartmentIdentityMap departments, boolean useSummaryTable) {
+		this.dataSource = dataSource;
+		this.departments = departments;
+		this.useSummaryTable = useSummaryTable;
+	}
+
+	@Override
+	public List<DepartmentSummary> findDepartmentSummaries() {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+
+		try {
+			conn = dataSource.getConnection();
+			query = conn.prepareStatement(useSummaryTable ? SUMMARY_TABLE_QUERY : GROUP_BY_QUERY);
+
+			result = query.executeQuery();
+
+			List<DepartmentSummary> list = new ArrayList<>();
+			while (result.next()) {
+				var dep = departments.resolve(result.getInt("DepartmentId"), result.getString("DepName"));
+				list.add(new DepartmentSummary(dep, result.getInt("SellerCount"), result.getDouble("TotalSalary"),
+						getNullableDouble(result, "MinSalary"), getNullableDouble(result, "MaxSalary")));
+			}
+			return list;
+
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+
+		}
+	}
+
+	private static Double getNullableDouble(ResultSet result, String column) throws SQLException {
+		double value = result.getDouble(column);
+		return result.wasNull() ? null : value;
+	}
+}
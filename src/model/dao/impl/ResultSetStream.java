@@ -0,0 +1,56 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import db.DB;
+import db.DbException;
+
+/**
+ * Lazily maps the rows of an open ResultSet into a Stream. The result set,
+ * statement and connection stay open until the stream is closed, so callers
+ * must use try-with-resources.
+ */
+class ResultSetStream {
+
+	interface RowMapper<T> {
+		T map(ResultSet result) throws SQLException;
+	}
+
+	static <T> Stream<T> of(Connection conn, PreparedStatement query, ResultSet result, RowMapper<T> mapper) {
+		var spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (!result.next()) {
+						return false;
+					}
+					action.accept(mapper.map(result));
+					return true;
+				}
+				catch (SQLException e) {
+					throw new DbException(e);
+				}
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> close(conn, query, result));
+	}
+
+	static void close(Connection conn, PreparedStatement query, ResultSet result) {
+		try {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+		}
+		finally {
+			DB.closeConnection(conn);
+		}
+	}
+}
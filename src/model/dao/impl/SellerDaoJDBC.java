@@ -1,33 +1,59 @@
 package model.dao.impl;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import model.dao.DepartmentIdentityMap;
 import model.dao.SellerDao;
+import model.dao.SellerFilter;
+import model.dao.SellerSort;
 import db.DB;
+import db.DbConflictException;
 import db.DbException;
+import db.QueryCancel;
 import model.entities.Department;
 import model.entities.Seller;
 
 public class SellerDaoJDBC implements SellerDao{
 	
-	private Connection conn;
+	private DataSource dataSource;
+
+	// reads may go to a replica, writes always go to dataSource
+	private DataSource readDataSource;
+
+	private DepartmentIdentityMap departments;
 	
-	public SellerDaoJDBC(Connection conn) {
-		this.conn = conn;
+	public SellerDaoJDBC(DataSource dataSource, DepartmentIdentityMap departments) {
+		this(dataSource, dataSource, departments);
+	}
+
+	public SellerDaoJDBC(DataSource dataSource, DataSource readDataSource, DepartmentIdentityMap departments) {
+		this.dataSource = dataSource;
+		this.readDataSource = readDataSource;
+		this.departments = departments;
 	}
 
 	@Override
 	public void insert(Seller obj) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
 					"INSERT INTO seller " +
 					"(name, email, birthDate, baseSalary, departmentId) " +
@@ -48,6 +74,7 @@ public class SellerDaoJDBC implements SellerDao{
 				if (result.next()) {
 					int id = result.getInt(1);
 					obj.setId(id);
+					obj.setVersion(0);
 				}
 				DB.closeResultSet(result);
 			} else {
@@ -56,22 +83,25 @@ public class SellerDaoJDBC implements SellerDao{
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 		}
 		
 	}
 
 	@Override
 	public void update(Seller obj) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
 					"UPDATE seller " +
-					"SET name=?, email=?, birthDate=?, baseSalary=?, departmentId=? " +
-					"WHERE id=?"
+					"SET name=?, email=?, birthDate=?, baseSalary=?, departmentId=?, version=version+1 " +
+					"WHERE id=? AND version=?"
 					);
 			
 			query.setString(1, obj.getName());
@@ -80,25 +110,263 @@ public class SellerDaoJDBC implements SellerDao{
 			query.setDouble(4, obj.getBaseSalary());
 			query.setInt(5, obj.getDepartment().getId());
 			query.setInt(6, obj.getId());
+			query.setInt(7, versionOf(obj));
 			
-			query.executeUpdate();
+			if (query.executeUpdate() == 0) {
+				throw conflict(obj);
+			}
+			obj.setVersion(obj.getVersion() + 1);
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 		
 	}
 
+	@Override
+	public void insertAll(Collection<Seller> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		Connection conn = null;
+		PreparedStatement query = null;
+		boolean autoCommit = true;
+		try {
+			conn = dataSource.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			
+			if (list.size() >= DB.getIntProperty("copyThreshold", 10000)) {
+				copyInsertAll(conn, list);
+			}
+			else {
+				int batchSize = DB.getIntProperty("batchSize", 500);
+				query = conn.prepareStatement(
+						"INSERT INTO seller " +
+						"(name, email, birthDate, baseSalary, departmentId) " +
+						"VALUES (?, ?, ?, ?, ?)",
+						Statement.RETURN_GENERATED_KEYS
+						);
+				
+				List<Seller> pending = new ArrayList<>(batchSize);
+				for (Seller obj : list) {
+					query.setString(1, obj.getName());
+					query.setString(2, obj.getEmail());
+					query.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+					query.setDouble(4, obj.getBaseSalary());
+					query.setInt(5, obj.getDepartment().getId());
+					query.addBatch();
+					pending.add(obj);
+					
+					if (pending.size() == batchSize) {
+						executeInsertBatch(query, pending);
+					}
+				}
+				executeInsertBatch(query, pending);
+			}
+			
+			if (autoCommit) {
+				conn.commit();
+			}
+		}
+		catch (SQLException | IOException e) {
+			rollback(conn, autoCommit);
+			list.forEach(obj -> obj.setId(null));
+			throw new DbException(e);
+		}
+		finally {
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+		}
+	}
+
+	private void executeInsertBatch(PreparedStatement query, List<Seller> pending) throws SQLException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		query.executeBatch();
+		
+		ResultSet result = query.getGeneratedKeys();
+		int i = 0;
+		while (result.next() && i < pending.size()) {
+			pending.get(i).setVersion(0);
+			pending.get(i++).setId(result.getInt(1));
+		}
+		DB.closeResultSet(result);
+		pending.clear();
+	}
+
+	private void copyInsertAll(Connection conn, Collection<Seller> list) throws SQLException, IOException {
+		// COPY doesn't return generated keys, so the ids are reserved from the sequence up front
+		PreparedStatement query = null;
+		ResultSet result = null;
+		try {
+			query = conn.prepareStatement(
+					"SELECT nextval(pg_get_serial_sequence('seller', 'id')) " +
+					"FROM generate_series(1, ?)"
+					);
+			query.setInt(1, list.size());
+			result = query.executeQuery();
+			for (Seller obj : list) {
+				result.next();
+				obj.setId(result.getInt(1));
+				obj.setVersion(0);
+			}
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+		}
+		
+		CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(
+				"COPY seller (id, name, email, birthDate, baseSalary, departmentId) " +
+				"FROM STDIN WITH (FORMAT csv)"
+				);
+		try {
+			int batchSize = DB.getIntProperty("batchSize", 500);
+			var csv = new StringBuilder();
+			int rows = 0;
+			for (Seller obj : list) {
+				csv.append(obj.getId()).append(',');
+				appendCsv(csv, obj.getName()).append(',');
+				appendCsv(csv, obj.getEmail()).append(',');
+				csv.append(new java.sql.Date(obj.getBirthDate().getTime())).append(',');
+				csv.append(obj.getBaseSalary()).append(',');
+				csv.append(obj.getDepartment().getId()).append('\n');
+				
+				if (++rows % batchSize == 0) {
+					writeToCopy(copyIn, csv);
+				}
+			}
+			writeToCopy(copyIn, csv);
+			copyIn.endCopy();
+		}
+		finally {
+			if (copyIn.isActive()) {
+				copyIn.cancelCopy();
+			}
+		}
+	}
+
+	private static StringBuilder appendCsv(StringBuilder csv, String value) {
+		if (value == null) {
+			return csv;
+		}
+		return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+	private static void writeToCopy(CopyIn copyIn, StringBuilder csv) throws SQLException {
+		byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+		copyIn.writeToCopy(bytes, 0, bytes.length);
+		csv.setLength(0);
+	}
+
+	@Override
+	public void updateAll(Collection<Seller> list) {
+		if (list.isEmpty()) {
+			return;
+		}
+		Connection conn = null;
+		PreparedStatement query = null;
+		boolean autoCommit = true;
+		try {
+			conn = dataSource.getConnection();
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			
+			int batchSize = DB.getIntProperty("batchSize", 500);
+			query = conn.prepareStatement(
+					"UPDATE seller " +
+					"SET name=?, email=?, birthDate=?, baseSalary=?, departmentId=?, version=version+1 " +
+					"WHERE id=? AND version=?"
+					);
+			
+			List<Seller> pending = new ArrayList<>(batchSize);
+			for (Seller obj : list) {
+				query.setString(1, obj.getName());
+				query.setString(2, obj.getEmail());
+				query.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+				query.setDouble(4, obj.getBaseSalary());
+				query.setInt(5, obj.getDepartment().getId());
+				query.setInt(6, obj.getId());
+				query.setInt(7, versionOf(obj));
+				query.addBatch();
+				pending.add(obj);
+				
+				if (pending.size() == batchSize) {
+					executeUpdateBatch(query, pending);
+				}
+			}
+			executeUpdateBatch(query, pending);
+			
+			if (autoCommit) {
+				conn.commit();
+			}
+			list.forEach(obj -> obj.setVersion(obj.getVersion() + 1));
+		}
+		catch (SQLException e) {
+			rollback(conn, autoCommit);
+			throw new DbException(e);
+		}
+		catch (DbConflictException e) {
+			rollback(conn, autoCommit);
+			throw e;
+		}
+		finally {
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+		}
+	}
+
+	private static void executeUpdateBatch(PreparedStatement query, List<Seller> pending) throws SQLException {
+		if (pending.isEmpty()) {
+			return;
+		}
+		int[] counts = query.executeBatch();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				throw conflict(pending.get(i));
+			}
+		}
+		pending.clear();
+	}
+
+	private static int versionOf(Seller obj) {
+		if (obj.getVersion() == null) {
+			throw new IllegalStateException("Seller " + obj.getId() + " has no version, it must be read before updating");
+		}
+		return obj.getVersion();
+	}
+
+	private static DbConflictException conflict(Seller obj) {
+		return new DbConflictException("Seller " + obj.getId() + " was changed or removed by another user");
+	}
+
+	private static void rollback(Connection conn, boolean autoCommit) {
+		// inside a caller's transaction the caller decides, otherwise undo the partial batch
+		if (conn != null && autoCommit) {
+			try {
+				conn.rollback();
+			}
+			catch (SQLException e) {
+				throw new DbException(e);
+			}
+		}
+	}
+
 	@Override
 	public void deleteById(Integer id) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		try {
+			conn = dataSource.getConnection();
 			query = conn.prepareStatement(
 					"DELETE FROM seller WHERE id=?"
 					);
@@ -108,11 +376,12 @@ public class SellerDaoJDBC implements SellerDao{
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 		
@@ -120,12 +389,14 @@ public class SellerDaoJDBC implements SellerDao{
 
 	@Override
 	public Seller findById(Integer id) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		ResultSet result = null;
 		
 		try {
+			conn = readDataSource.getConnection();
 			query = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName " + 
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
 					"FROM seller INNER JOIN department " + 
 					"ON seller.DepartmentId = department.Id " + 
 					"WHERE seller.Id = ?;"
@@ -146,12 +417,49 @@ public class SellerDaoJDBC implements SellerDao{
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
+			
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+			
+		}
+	}
+
+	@Override
+	public List<Seller> findByIds(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+		
+		try {
+			conn = readDataSource.getConnection();
+			query = conn.prepareStatement(
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
+					"FROM seller INNER JOIN department " + 
+					"ON seller.DepartmentId = department.Id " + 
+					"WHERE seller.Id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")"
+					);
+			
+			bind(query, new ArrayList<>(ids));
+			result = query.executeQuery();
+			
+			return instantiateSellers(result);
+			
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeResultSet(result);
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 	}
@@ -164,27 +472,76 @@ public class SellerDaoJDBC implements SellerDao{
 		seller.setBaseSalary(result.getDouble("baseSalary"));
 		seller.setBirthDate(new java.util.Date(result.getTimestamp("birthDate").getTime()));
 		seller.setDepartment(dep);
+		seller.setVersion(result.getInt("version"));
 		
 		return seller;
 	}
 
 	private Department instantiateDepartment(ResultSet result) throws SQLException {
-		var dep = new Department();
-		dep.setId(result.getInt("departmentId"));
-		dep.setName(result.getString("depName"));
-		
-		return dep;
+		// with the version, a replica that is behind cannot roll back a newer department
+		return departments.resolve(result.getInt("departmentId"), result.getString("depName"),
+				result.getInt("depVersion"));
 	}
 	
 
+	private List<Seller> instantiateSellers(ResultSet result) throws SQLException {
+		List<Seller> sellers = new ArrayList<>();
+		
+		while (result.next()) {
+			
+			var dep = instantiateDepartment(result);
+			
+			var seller = instatianteSeller(result, dep);
+			
+			sellers.add(seller);
+			
+		}
+		return sellers;
+	}
+
+	@Override
+	public List<Seller> findChangedSince(long changeMark) {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+		
+		try {
+			conn = readDataSource.getConnection();
+			query = conn.prepareStatement(
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
+					"FROM seller INNER JOIN department " + 
+					"ON seller.DepartmentId = department.Id " + 
+					"WHERE seller.change_txid >= ?"
+					);
+			
+			query.setLong(1, changeMark);
+			result = query.executeQuery();
+			
+			return instantiateSellers(result);
+			
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+			
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+			
+		}
+	}
+
 	@Override
 	public List<Seller> findAll() {
+		Connection conn = null;
 		PreparedStatement query = null;
 		ResultSet result = null;
 		
 		try {
+			conn = readDataSource.getConnection();
 			query = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName " + 
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
 					"FROM seller INNER JOIN department " + 
 					"ON seller.DepartmentId = department.Id " + 
 					"ORDER BY Name"
@@ -192,46 +549,31 @@ public class SellerDaoJDBC implements SellerDao{
 			
 			result = query.executeQuery();
 			
-			List<Seller> sellers = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
-			
-			while (result.next()) {
-				
-				var dep = map.get(result.getInt("departmentId"));
-				
-				if (dep == null) {
-					dep = instantiateDepartment(result);
-					map.put(result.getInt("departmentid"), dep);
-				}
-				
-				
-				var seller = instatianteSeller(result, dep);
-				
-				sellers.add(seller);
-				
-			}
-			return sellers;
+			return instantiateSellers(result);
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
 			DB.closeResultSet(result);
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
 			
 		}
 	}
 
 	@Override
 	public List<Seller> findByDepartment(Department department) {
+		Connection conn = null;
 		PreparedStatement query = null;
 		ResultSet result = null;
 		
 		try {
+			conn = readDataSource.getConnection();
 			query = conn.prepareStatement(
-					"SELECT seller.*,department.Name as DepName " + 
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
 					"FROM seller INNER JOIN department " + 
 					"ON seller.DepartmentId = department.Id " + 
 					"WHERE DepartmentId = ? " + 
@@ -241,35 +583,187 @@ public class SellerDaoJDBC implements SellerDao{
 			query.setInt(1, department.getId());
 			result = query.executeQuery();
 			
-			List<Seller> sellers = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
+			return instantiateSellers(result);
 			
-			while (result.next()) {
-				
-				var dep = map.get(result.getInt("departmentId"));
-				
-				if (dep == null) {
-					dep = instantiateDepartment(result);
-					map.put(result.getInt("departmentid"), dep);
+		}
+		catch (SQLException e) {
+			throw new DbException(e);
+			
+		}
+		finally {
+			DB.closeResultSet(result);
+			DB.closeStatement(query);
+			DB.closeConnection(conn);
+			
+		}
+	}
+
+	@Override
+	public List<Seller> findPage(Seller after, int pageSize) {
+		return search(null, SellerSort.DEFAULT, after, pageSize, null);
+	}
+
+	@Override
+	public List<Seller> search(SellerFilter filter, SellerSort sort, Seller after, int pageSize, QueryCancel cancel) {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+		
+		try {
+			List<String> where = new ArrayList<>();
+			List<Object> params = new ArrayList<>();
+			if (filter != null) {
+				addFilter(filter, where, params);
+			}
+			if (after != null) {
+				// keyset pagination: seek past the last (sort column, id) seen instead of using OFFSET
+				String seek = sort.isAscending() ? ">" : "<";
+				if (sort.getColumn() == SellerSort.Column.ID) {
+					where.add("seller.Id " + seek + " ?");
+				} else {
+					where.add("(" + sort.getColumn().getSql() + ", seller.Id) " + seek + " (?, ?)");
+					params.add(keyOf(sort.getColumn().valueOf(after)));
 				}
-				
-				
-				var seller = instatianteSeller(result, dep);
-				
-				sellers.add(seller);
-				
+				params.add(after.getId());
+			}
+			params.add(pageSize);
+			
+			conn = readDataSource.getConnection();
+			query = conn.prepareStatement(
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
+					"FROM seller INNER JOIN department " + 
+					"ON seller.DepartmentId = department.Id " + 
+					(where.isEmpty() ? "" : "WHERE " + String.join(" AND ", where) + " ") + 
+					"ORDER BY " + sort.orderBy() + " " + 
+					"LIMIT ?"
+					);
+			
+			bind(query, params);
+			if (cancel != null) {
+				cancel.register(query);
 			}
-			return sellers;
+			result = query.executeQuery();
+			
+			return instantiateSellers(result);
 			
 		}
 		catch (SQLException e) {
-			throw new DbException(e.getMessage());
+			throw new DbException(e);
 			
 		}
 		finally {
+			// before the statement goes back to the cache, a late cancel must not hit its next query
+			if (cancel != null) {
+				cancel.unregister();
+			}
 			DB.closeResultSet(result);
 			DB.closeStatement(query);
+			DB.closeConnection(conn);
+			
+		}
+	}
+
+	private static void addFilter(SellerFilter filter, List<String> where, List<Object> params) {
+		if (filter.getNamePrefix() != null) {
+			// served by the lower(name) text_pattern_ops index
+			where.add("lower(seller.Name) LIKE ?");
+			params.add(escapeLike(filter.getNamePrefix().toLowerCase()) + "%");
+		}
+		if (filter.getEmail() != null) {
+			// served by the trigram index on email
+			where.add("seller.Email ILIKE ?");
+			params.add("%" + escapeLike(filter.getEmail()) + "%");
+		}
+		if (filter.getDepartment() != null) {
+			where.add("seller.DepartmentId = ?");
+			params.add(filter.getDepartment().getId());
+		}
+		if (filter.getMinBaseSalary() != null) {
+			where.add("seller.BaseSalary >= ?");
+			params.add(filter.getMinBaseSalary());
+		}
+		if (filter.getMaxBaseSalary() != null) {
+			where.add("seller.BaseSalary <= ?");
+			params.add(filter.getMaxBaseSalary());
+		}
+		if (filter.getMinBirthDate() != null) {
+			where.add("seller.BirthDate >= ?");
+			params.add(new java.sql.Date(filter.getMinBirthDate().getTime()));
+		}
+		if (filter.getMaxBirthDate() != null) {
+			where.add("seller.BirthDate <= ?");
+			params.add(new java.sql.Date(filter.getMaxBirthDate().getTime()));
+		}
+	}
+
+	private static Object keyOf(Object value) {
+		if (value instanceof java.util.Date) {
+			return new java.sql.Date(((java.util.Date) value).getTime());
+		}
+		return value;
+	}
+
+	private static String escapeLike(String str) {
+		return str.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	private static void bind(PreparedStatement query, List<Object> params) throws SQLException {
+		for (int i = 0; i < params.size(); i++) {
+			Object param = params.get(i);
+			if (param instanceof String) {
+				query.setString(i + 1, (String) param);
+			} else if (param instanceof Integer) {
+				query.setInt(i + 1, (Integer) param);
+			} else if (param instanceof Double) {
+				query.setDouble(i + 1, (Double) param);
+			} else {
+				query.setDate(i + 1, (java.sql.Date) param);
+			}
+		}
+	}
+
+	@Override
+	public Stream<Seller> streamAll() {
+		return stream(null);
+	}
+
+	@Override
+	public Stream<Seller> streamByDepartment(Department department) {
+		return stream(department.getId());
+	}
+
+	private Stream<Seller> stream(Integer departmentId) {
+		Connection conn = null;
+		PreparedStatement query = null;
+		ResultSet result = null;
+		
+		try {
+			conn = readDataSource.getConnection();
+			// the PostgreSQL driver only uses a cursor (fetchSize) outside autocommit
+			conn.setAutoCommit(false);
+			query = conn.prepareStatement(
+					"SELECT seller.*,department.Name as DepName,department.Version as DepVersion " + 
+					"FROM seller INNER JOIN department " + 
+					"ON seller.DepartmentId = department.Id " + 
+					(departmentId == null ? "" : "WHERE DepartmentId = ? ") + 
+					"ORDER BY Name",
+					ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY
+					);
+			query.setFetchSize(DB.getIntProperty("fetchSize", 500));
+			
+			if (departmentId != null) {
+				query.setInt(1, departmentId);
+			}
+			result = query.executeQuery();
+			
+			return ResultSetStream.of(conn, query, result, rs -> instatianteSeller(rs, instantiateDepartment(rs)));
+			
+		}
+		catch (SQLException e) {
+			ResultSetStream.close(conn, query, result);
+			throw new DbException(e);
 			
 		}
 	}
-}
\ No newline at end of file
+}
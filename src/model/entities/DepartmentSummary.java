@@ -0,0 +1,78 @@
+package model.entities;
+
+import java.io.Serializable;
+
+public class DepartmentSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Department department;
+	private Integer sellerCount;
+	private Double totalSalary;
+	private Double minSalary;
+	private Double maxSalary;
+
+	public DepartmentSummary() {
+
+	}
+
+	public DepartmentSummary(Department department, Integer sellerCount, Double totalSalary, Double minSalary,
+			Double maxSalary) {
+		this.department = department;
+		this.sellerCount = sellerCount;
+		this.totalSalary = totalSalary;
+		this.minSalary = minSalary;
+		this.maxSalary = maxSalary;
+	}
+
+	public Department getDepartment() {
+		return department;
+	}
+
+	public void setDepartment(Department department) {
+		this.department = department;
+	}
+
+	public Integer getSellerCount() {
+		return sellerCount;
+	}
+
+	public void setSellerCount(Integer sellerCount) {
+		this.sellerCount = sellerCount;
+	}
+
+	public Double getTotalSalary() {
+		return totalSalary;
+	}
+
+	public void setTotalSalary(Double totalSalary) {
+		this.totalSalary = totalSalary;
+	}
+
+	public Double getAverageSalary() {
+		return sellerCount == null || sellerCount == 0 ? null : totalSalary / sellerCount;
+	}
+
+	public Double getMinSalary() {
+		return minSalary;
+	}
+
+	public void setMinSalary(Double minSalary) {
+		this.minSalary = minSalary;
+	}
+
+	public Double getMaxSalary() {
+		return maxSalary;
+	}
+
+	public void setMaxSalary(Double maxSalary) {
+		this.maxSalary = maxSalary;
+	}
+
+	@Override
+	public String toString() {
+		return "DepartmentSummary [department=" + department + ", sellerCount=" + sellerCount + ", totalSalary="
+				+ totalSalary + ", minSalary=" + minSalary + ", maxSalary=" + maxSalary + "]";
+	}
+
+}
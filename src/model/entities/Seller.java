@@ -15,6 +15,9 @@ public class Seller implements Serializable {
 	
 	private Department department;
 	
+	// row version read from the database, checked and bumped on update
+	private Integer version;
+	
 	public Seller() {
 		
 	}
@@ -77,6 +80,14 @@ public class Seller implements Serializable {
 		this.department = department;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,94 @@
+package model.services;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import db.ChangeFeed;
+import db.DB;
+import db.QueryMetrics;
+import model.dao.DaoFactory;
+
+/**
+ * Runs the database change feed for the session. Caches are invalidated
+ * here, before the listeners added through addListener hear about the
+ * change, so that a listener reading the changed rows gets fresh ones.
+ * <p>
+ * Enabled with changeFeed.enabled in db.properties.
+ */
+public class ChangeFeedService {
+
+	private static final List<ChangeFeed.Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private static ChangeFeed feed;
+
+	public static synchronized void start() {
+		Properties props = DB.loadProperties();
+		if (feed != null || !Boolean.parseBoolean(props.getProperty("changeFeed.enabled", "true"))) {
+			return;
+		}
+		feed = new ChangeFeed(props.getProperty("dburl"), props);
+		feed.addListener(ChangeFeedService::dispatch);
+		feed.start();
+	}
+
+	public static synchronized void stop() {
+		if (feed != null) {
+			feed.stop();
+			feed = null;
+		}
+	}
+
+	public static synchronized boolean isRunning() {
+		return feed != null;
+	}
+
+	/**
+	 * Listeners run on the feed thread, in the order they were added. They
+	 * may be added before the feed starts.
+	 */
+	public static void addListener(ChangeFeed.Listener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(ChangeFeed.Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private static void dispatch(List<ChangeFeed.Change> changes) {
+		// caches and the local store first, so listeners reading the changed rows get fresh ones
+		invalidate(changes);
+		syncLocalStore();
+		for (ChangeFeed.Listener listener : listeners) {
+			listener.onChanges(changes);
+		}
+	}
+
+	private static void syncLocalStore() {
+		LocalStore store = LocalStore.get();
+		if (store == null) {
+			return;
+		}
+		try {
+			store.sync();
+		} catch (RuntimeException e) {
+			// the scheduled sync retries
+			QueryMetrics.warning("Local store sync failed: " + e.getMessage());
+		}
+	}
+
+	private static void invalidate(List<ChangeFeed.Change> changes) {
+		for (ChangeFeed.Change change : changes) {
+			if ("department".equals(change.getTable())) {
+				if (change.getType() == ChangeFeed.Change.Type.DELETE) {
+					DaoFactory.getDepartmentIdentityMap().remove(change.getId());
+				}
+				DepartmentService.invalidateCache();
+			} else if (change.getType() == ChangeFeed.Change.Type.RELOAD) {
+				SellerService.invalidateCache();
+			} else {
+				SellerService.invalidateCache(change.getId());
+			}
+		}
+	}
+}
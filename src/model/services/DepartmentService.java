@@ -1,17 +1,56 @@
 package model.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import db.DB;
+import db.DbConflictException;
+import db.TransactionManager;
 import model.dao.DaoFactory;
 import model.dao.DepartmentDao;
 import model.entities.Department;
 
 public class DepartmentService {
 	
+	// shared by every service instance, the views create a new service each time they open
+	private static final EntityCache<Integer, Department> byId = new EntityCache<>(
+			DB.getIntProperty("cache.maxSize", 1000), DB.getIntProperty("cache.ttl", 60000));
+	
+	private static final EntityCache<String, List<Department>> lists = new EntityCache<>(
+			DB.getIntProperty("cache.maxLists", 100), DB.getIntProperty("cache.ttl", 60000));
+	
 	private DepartmentDao dao = DaoFactory.createDepartmentDao();
 	
+	private TransactionManager transactions = DB.getTransactionManager();
+	
 	public List<Department> findAll() {
-		return dao.findAll();
+		LocalStore store = readStore();
+		if (store != null) {
+			return store.findAllDepartments();
+		}
+		return lists.get("all", key -> Collections.unmodifiableList(dao.findAll()));
+	}
+	
+	public CompletableFuture<List<Department>> findAllAsync() {
+		return CompletableFuture.supplyAsync(this::findAll, ServiceExecutor.get());
+	}
+	
+	public Stream<Department> streamAll() {
+		return dao.streamAll();
+	}
+	
+	public Department findById(Integer id) {
+		LocalStore store = readStore();
+		Department obj = store == null ? null : store.findDepartment(id);
+		if (obj != null) {
+			return obj;
+		}
+		return byId.get(id, dao::findById);
 	}
 	
 	public void saveOrUpdate(Department obj) {
@@ -19,12 +58,128 @@ public class DepartmentService {
 			dao.insert(obj);
 			
 		} else {
-			dao.update(obj);
+			try {
+				dao.update(obj);
+			}
+			catch (DbConflictException e) {
+				// the cached copy is the stale one
+				byId.invalidate(obj.getId());
+				throw e;
+			}
 			
 		}
+		invalidate(obj);
+		writeThrough(store -> store.put(obj));
+	}
+	
+	/**
+	 * Reads the current row, bypassing the cache. Returns null if it was
+	 * deleted.
+	 */
+	public Department refresh(Integer id) {
+		byId.invalidate(id);
+		// a transaction reads from the primary, a replica may not have the change yet
+		return transactions.inTransaction(() -> findById(id));
+	}
+	
+	public CompletableFuture<Department> refreshAsync(Integer id) {
+		return CompletableFuture.supplyAsync(() -> refresh(id), ServiceExecutor.get());
+	}
+	
+	/**
+	 * Inserts the new departments and updates the others in one transaction.
+	 */
+	public void saveOrUpdateAll(Collection<Department> list) {
+		List<Department> inserts = new ArrayList<>();
+		List<Department> updates = new ArrayList<>();
+		for (Department obj : list) {
+			(obj.getId() == null ? inserts : updates).add(obj);
+		}
+		try {
+			transactions.inTransaction(() -> {
+				dao.insertAll(inserts);
+				dao.updateAll(updates);
+			});
+			writeThrough(store -> list.forEach(store::put));
+		}
+		catch (RuntimeException e) {
+			// rolled back, the generated ids were never committed
+			inserts.forEach(obj -> obj.setId(null));
+			throw e;
+		}
+		finally {
+			transactions.afterCompletion(committed -> {
+				byId.invalidateAll();
+				lists.invalidateAll();
+				SellerService.invalidateCache();
+				if (!committed) {
+					DaoFactory.getDepartmentIdentityMap().clear();
+				}
+			});
+		}
 	}
 	
 	public void remove(Department obj) {
 		dao.deleteById(obj.getId());
+		invalidate(obj);
+		writeThrough(store -> store.removeDepartment(obj));
+	}
+	
+	public CompletableFuture<Department> saveOrUpdateAsync(Department obj) {
+		return CompletableFuture.supplyAsync(() -> {
+			saveOrUpdate(obj);
+			return obj;
+		}, ServiceExecutor.get());
+	}
+	
+	public CompletableFuture<Department> removeAsync(Department obj) {
+		return CompletableFuture.supplyAsync(() -> {
+			remove(obj);
+			return obj;
+		}, ServiceExecutor.get());
+	}
+	
+	private void invalidate(Department obj) {
+		byId.invalidate(obj.getId());
+		lists.invalidateAll();
+		// cached sellers carry the department name
+		SellerService.invalidateCache();
+		// rows read inside a transaction may have been cached before it rolled back
+		transactions.afterCompletion(committed -> {
+			if (!committed) {
+				byId.invalidateAll();
+				lists.invalidateAll();
+				DaoFactory.getDepartmentIdentityMap().clear();
+			}
+		});
+	}
+	
+	// inside a transaction reads must see its own writes, the store only has committed rows
+	private LocalStore readStore() {
+		return LocalStore.isReady() && !transactions.isActive() ? LocalStore.get() : null;
+	}
+	
+	private void writeThrough(Consumer<LocalStore> write) {
+		transactions.afterCompletion(committed -> {
+			LocalStore store = LocalStore.get();
+			if (committed && store != null) {
+				write.accept(store);
+			}
+		});
+	}
+	
+	public static EntityCache.Stats getCacheStats() {
+		return byId.getStats();
+	}
+	
+	public static EntityCache.Stats getListCacheStats() {
+		return lists.getStats();
+	}
+	
+	// a department changed by another client, cached sellers carry its name
+	static void invalidateCache() {
+		byId.invalidateAll();
+		lists.invalidateAll();
+		SellerService.invalidateCache();
 	}
 }
@@ -0,0 +1,136 @@
+package model.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache with LRU and time-to-live eviction.
+ */
+public class EntityCache<K, V> {
+
+	private final int maxSize;
+	private final long ttlMillis;
+
+	private final Map<K, CacheEntry<V>> map;
+
+	// bumped on every invalidation so a load that raced with a write is not cached
+	private long generation;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public EntityCache(int maxSize, long ttlMillis) {
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.map = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+				if (size() > EntityCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public V get(K key, Function<K, V> loader) {
+		long loadGeneration;
+		synchronized (this) {
+			var entry = map.get(key);
+			if (entry != null) {
+				if (System.currentTimeMillis() - entry.loadedAt <= ttlMillis) {
+					hits++;
+					return entry.value;
+				}
+				map.remove(key);
+				evictions++;
+			}
+			misses++;
+			loadGeneration = generation;
+		}
+
+		V value = loader.apply(key);
+
+		if (value != null) {
+			synchronized (this) {
+				if (generation == loadGeneration) {
+					map.put(key, new CacheEntry<>(value));
+				}
+			}
+		}
+		return value;
+	}
+
+	public synchronized void put(K key, V value) {
+		map.put(key, new CacheEntry<>(value));
+	}
+
+	public synchronized void invalidate(K key) {
+		generation++;
+		map.remove(key);
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		map.clear();
+	}
+
+	public synchronized Stats getStats() {
+		return new Stats(map.size(), hits, misses, evictions);
+	}
+
+	private static class CacheEntry<V> {
+		final V value;
+		final long loadedAt = System.currentTimeMillis();
+
+		CacheEntry(V value) {
+			this.value = value;
+		}
+	}
+
+	public static class Stats {
+		private final int size;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+
+		public Stats(int size, long hits, long misses, long evictions) {
+			this.size = size;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public double getHitRate() {
+			long total = hits + misses;
+			return total == 0 ? 0.0 : (double) hits / total;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats [size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+					+ ", hitRate=" + getHitRate() + "]";
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package model.services;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import db.DbException;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Writes sellers or departments to CSV or JSON straight from a database
+ * stream, so memory use does not depend on the number of rows. The format
+ * follows the file name: .csv or .json, optionally followed by .gz.
+ */
+public class ExportService {
+
+	public enum Format {
+		CSV, JSON
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// thread-safe, shared by every export instead of a formatter per row
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	private static final List<String> SELLER_COLUMNS = List.of("id", "name", "email", "birthDate", "baseSalary",
+			"departmentId", "department");
+
+	private static final List<String> DEPARTMENT_COLUMNS = List.of("id", "name");
+
+	private SellerService sellerService = new SellerService();
+
+	private DepartmentService departmentService = new DepartmentService();
+
+	public long exportSellers(Path file) throws IOException {
+		try (Stream<Seller> sellers = sellerService.streamAll()) {
+			return export(file, SELLER_COLUMNS, sellers, ExportService::sellerValues);
+		}
+	}
+
+	public long exportDepartments(Path file) throws IOException {
+		try (Stream<Department> departments = departmentService.streamAll()) {
+			return export(file, DEPARTMENT_COLUMNS, departments, dep -> new Object[] { dep.getId(), dep.getName() });
+		}
+	}
+
+	public CompletableFuture<Long> exportSellersAsync(Path file) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return exportSellers(file);
+			} catch (IOException e) {
+				throw new DbException(e);
+			}
+		}, ServiceExecutor.get());
+	}
+
+	public CompletableFuture<Long> exportDepartmentsAsync(Path file) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return exportDepartments(file);
+			} catch (IOException e) {
+				throw new DbException(e);
+			}
+		}, ServiceExecutor.get());
+	}
+
+	public static Format formatOf(Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		if (name.endsWith(".gz")) {
+			name = name.substring(0, name.length() - 3);
+		}
+		if (name.endsWith(".csv")) {
+			return Format.CSV;
+		}
+		if (name.endsWith(".json")) {
+			return Format.JSON;
+		}
+		throw new IllegalArgumentException("Unknown export format: " + file.getFileName());
+	}
+
+	private static <T> long export(Path file, List<String> columns, Stream<T> rows, Function<T, Object[]> values)
+			throws IOException {
+		Format format = formatOf(file);
+		try (OutputStream out = open(file); Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+			return format == Format.CSV ? writeCsv(writer, columns, rows.iterator(), values)
+					: writeJson(writer, columns, rows.iterator(), values);
+		}
+		catch (IOException | RuntimeException e) {
+			// do not leave a truncated file behind
+			Files.deleteIfExists(file);
+			throw e;
+		}
+	}
+
+	private static OutputStream open(Path file) throws IOException {
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+		if (!file.getFileName().toString().toLowerCase().endsWith(".gz")) {
+			return out;
+		}
+		try {
+			// writes the GZIP header
+			return new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		catch (IOException | RuntimeException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	private static <T> long writeCsv(Writer writer, List<String> columns, Iterator<T> rows,
+			Function<T, Object[]> values) throws IOException {
+		writer.write(String.join(",", columns));
+		writer.write('\n');
+		long count = 0;
+		while (rows.hasNext()) {
+			Object[] row = values.apply(rows.next());
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(csvValue(row[i]));
+			}
+			writer.write('\n');
+			count++;
+		}
+		return count;
+	}
+
+	private static <T> long writeJson(Writer writer, List<String> columns, Iterator<T> rows,
+			Function<T, Object[]> values) throws IOException {
+		writer.write('[');
+		long count = 0;
+		while (rows.hasNext()) {
+			Object[] row = values.apply(rows.next());
+			writer.write(count == 0 ? "\n{" : ",\n{");
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(jsonString(columns.get(i)));
+				writer.write(':');
+				writer.write(jsonValue(row[i]));
+			}
+			writer.write('}');
+			count++;
+		}
+		writer.write("\n]\n");
+		return count;
+	}
+
+	private static Object[] sellerValues(Seller obj) {
+		Department dep = obj.getDepartment();
+		return new Object[] { obj.getId(), obj.getName(), obj.getEmail(), formatDate(obj.getBirthDate()),
+				obj.getBaseSalary(), dep == null ? null : dep.getId(), dep == null ? null : dep.getName() };
+	}
+
+	private static String formatDate(java.util.Date date) {
+		if (date == null) {
+			return null;
+		}
+		if (date instanceof java.sql.Date) {
+			return ((java.sql.Date) date).toLocalDate().format(DATE_FORMAT);
+		}
+		return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().format(DATE_FORMAT);
+	}
+
+	private static String csvValue(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String str = value.toString();
+		if (str.indexOf(',') < 0 && str.indexOf('"') < 0 && str.indexOf('\n') < 0 && str.indexOf('\r') < 0) {
+			return str;
+		}
+		return '"' + str.replace("\"", "\"\"") + '"';
+	}
+
+	private static String jsonValue(Object value) {
+		if (value == null) {
+			return "null";
+		}
+		if (value instanceof Double && !Double.isFinite((Double) value)) {
+			// JSON has no NaN or Infinity
+			return "null";
+		}
+		if (value instanceof Number) {
+			return value.toString();
+		}
+		return jsonString(value.toString());
+	}
+
+	private static String jsonString(String str) {
+		var sb = new StringBuilder(str.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,612 @@
+package model.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import db.DB;
+import db.DbException;
+import db.QueryMetrics;
+import model.dao.ChangeLogDao;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.DepartmentIdentityMap;
+import model.dao.SellerDao;
+import model.dao.SellerSort;
+import model.dao.TextOrder;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * A copy of the seller and department tables kept on disk between sessions,
+ * so the lists can be shown before the database answers and keep being
+ * served when it is slow.
+ * <p>
+ * The copy is loaded from localStore.file at startup and brought up to date
+ * in the background every localStore.syncInterval ms. A sync only fetches
+ * the rows written since the previous one and the ids deleted since then,
+ * both tracked by transaction id (see V7__change_tracking.sql). A copy older
+ * than localStore.maxAgeDays, or one that was never synced, is reloaded in
+ * full.
+ * <p>
+ * Enabled with localStore.enabled in db.properties.
+ */
+public class LocalStore {
+
+	private static final int MAGIC = 0x53454c4c;
+
+	// bump when the layout changes, older files are then ignored and reloaded
+	private static final int FORMAT_VERSION = 1;
+
+	private static LocalStore instance;
+
+	private final Path file;
+
+	private final long syncInterval;
+
+	private final long maxAgeMillis;
+
+	private final DepartmentIdentityMap identityMap = DaoFactory.getDepartmentIdentityMap();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<Integer, Department> departments = new HashMap<>();
+
+	private final Map<Integer, Seller> sellers = new HashMap<>();
+
+	// in the order of SellerDao.findPage(), see TextOrder
+	private final NavigableSet<Seller> sellersByName = new TreeSet<>(SellerSort.DEFAULT.comparator());
+
+	// seller ids by department id, the sellers to re-point when a department changes
+	private final Map<Integer, Set<Integer>> sellersByDepartment = new HashMap<>();
+
+	// the transaction id the next sync reads from, 0 before the first one
+	private long changeMark;
+
+	private long syncedAt;
+
+	private volatile boolean ready;
+
+	private volatile boolean dirty;
+
+	// held by sync and save, apart from the monitor so that requestSync() does not wait for them
+	private final Object syncLock = new Object();
+
+	private ScheduledExecutorService syncer;
+
+	private LocalStore(Properties props) {
+		this.file = Paths.get(props.getProperty("localStore.file",
+				Paths.get(System.getProperty("user.home"), ".sellers", "store.bin").toString()));
+		this.syncInterval = DB.getIntProperty("localStore.syncInterval", 30000);
+		this.maxAgeMillis = TimeUnit.DAYS.toMillis(DB.getIntProperty("localStore.maxAgeDays", 7));
+	}
+
+	/**
+	 * Loads the copy saved by the last session. Does not touch the database,
+	 * call startSync() once the schema is migrated.
+	 */
+	public static synchronized LocalStore open() {
+		Properties props = DB.loadProperties();
+		if (instance == null && Boolean.parseBoolean(props.getProperty("localStore.enabled", "false"))) {
+			instance = new LocalStore(props);
+			instance.load();
+		}
+		return instance;
+	}
+
+	/**
+	 * The open store, or null when it is disabled.
+	 */
+	public static synchronized LocalStore get() {
+		return instance;
+	}
+
+	/**
+	 * True when the store is open and holds data to serve reads from.
+	 */
+	public static boolean isReady() {
+		LocalStore store = get();
+		return store != null && store.ready;
+	}
+
+	public static synchronized void close() {
+		if (instance != null) {
+			instance.stopSync();
+			// saved even when unchanged, the next session syncs from the latest mark
+			if (instance.ready) {
+				instance.save();
+			}
+			instance = null;
+		}
+	}
+
+	public synchronized void startSync() {
+		if (syncer != null) {
+			return;
+		}
+		syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+			var thread = new Thread(r, "local-store-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		syncer.scheduleWithFixedDelay(this::syncAndSave, 0, syncInterval, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void stopSync() {
+		if (syncer != null) {
+			syncer.shutdownNow();
+			syncer = null;
+		}
+	}
+
+	/**
+	 * Syncs in the background ahead of the schedule, after a bulk change.
+	 */
+	public synchronized void requestSync() {
+		if (syncer != null) {
+			syncer.execute(this::syncAndSave);
+		}
+	}
+
+	private void syncAndSave() {
+		try {
+			sync();
+			if (dirty) {
+				save();
+			}
+		} catch (RuntimeException e) {
+			// the copy stays as it is until the database is back
+			QueryMetrics.warning("Local store sync failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Brings the copy up to date on the calling thread. Returns true if
+	 * anything changed.
+	 */
+	public boolean sync() {
+		synchronized (syncLock) {
+			return doSync();
+		}
+	}
+
+	private boolean doSync() {
+		long started = System.currentTimeMillis();
+		long since;
+		boolean full;
+		lock.readLock().lock();
+		try {
+			since = changeMark;
+			full = since == 0 || started - syncedAt > maxAgeMillis;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		ChangeLogDao changeLog = DaoFactory.createChangeLogDao();
+		DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+		SellerDao sellerDao = DaoFactory.createSellerDao();
+		// one transaction reads from the primary, a replica may be behind the mark
+		return DB.getTransactionManager().inTransaction(() -> {
+			// taken first: every transaction from the mark on is read again next time
+			long mark = changeLog.currentChangeMark();
+			boolean changed;
+			if (full) {
+				changed = replace(departmentDao.findAll(), sellerDao.findAll());
+			} else {
+				changed = apply(departmentDao.findChangedSince(since), changeLog.findDeletedSince("department", since),
+						sellerDao.findChangedSince(since), changeLog.findDeletedSince("seller", since));
+			}
+			lock.writeLock().lock();
+			try {
+				changeMark = mark;
+				syncedAt = started;
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+			ready = true;
+			if (changed) {
+				dirty = true;
+				DepartmentService.invalidateCache();
+			}
+			return changed;
+		});
+	}
+
+	private boolean replace(List<Department> newDepartments, List<Seller> newSellers) {
+		lock.writeLock().lock();
+		try {
+			departments.clear();
+			sellers.clear();
+			sellersByName.clear();
+			sellersByDepartment.clear();
+			newDepartments.forEach(this::putDepartment);
+			newSellers.forEach(this::putSeller);
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// upserts first: a row changed and then deleted since the mark is gone
+	private boolean apply(List<Department> changedDepartments, List<Integer> deletedDepartments,
+			List<Seller> changedSellers, List<Integer> deletedSellers) {
+		lock.writeLock().lock();
+		try {
+			boolean changed = false;
+			for (Department obj : changedDepartments) {
+				changed |= putDepartment(obj);
+			}
+			for (Seller obj : changedSellers) {
+				changed |= putSeller(obj);
+			}
+			for (Integer id : deletedSellers) {
+				changed |= removeSeller(id);
+			}
+			for (Integer id : deletedDepartments) {
+				changed |= departments.remove(id) != null;
+			}
+			return changed;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes a committed save through to the copy, so the lists show it
+	 * before the next sync.
+	 */
+	public void put(Seller obj) {
+		lock.writeLock().lock();
+		try {
+			putSeller(copyOf(obj));
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		dirty = true;
+	}
+
+	public void put(Department obj) {
+		lock.writeLock().lock();
+		try {
+			var copy = new Department(obj.getId(), obj.getName());
+			copy.setVersion(obj.getVersion());
+			putDepartment(copy);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		dirty = true;
+	}
+
+	public void removeSeller(Seller obj) {
+		lock.writeLock().lock();
+		try {
+			removeSeller(obj.getId());
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		dirty = true;
+	}
+
+	public void removeDepartment(Department obj) {
+		lock.writeLock().lock();
+		try {
+			departments.remove(obj.getId());
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		dirty = true;
+	}
+
+	// sellers handed out are never changed, updates go to a copy
+	private static Seller copyOf(Seller obj) {
+		var copy = new Seller(obj.getId(), obj.getName(), obj.getEmail(), obj.getBirthDate(), obj.getBaseSalary(),
+				obj.getDepartment());
+		copy.setVersion(obj.getVersion());
+		return copy;
+	}
+
+	// a write-through may be newer than the row a concurrent sync read, keep the higher version
+	private static boolean isOlder(Integer version, Integer than) {
+		return version != null && than != null && version < than;
+	}
+
+	private boolean putDepartment(Department obj) {
+		Department current = departments.get(obj.getId());
+		if (current != null && isOlder(obj.getVersion(), current.getVersion())) {
+			return false;
+		}
+		Department resolved = identityMap.resolve(obj);
+		departments.put(obj.getId(), resolved);
+		// a rename replaces the instance, the sellers of the department are replaced to point to the new one
+		Set<Integer> ids = sellersByDepartment.get(obj.getId());
+		if (ids != null) {
+			for (Integer id : new ArrayList<>(ids)) {
+				Seller seller = sellers.get(id);
+				if (seller.getDepartment() != resolved) {
+					putSeller(copyOf(seller));
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean putSeller(Seller obj) {
+		Seller current = sellers.get(obj.getId());
+		if (current != null) {
+			if (isOlder(obj.getVersion(), current.getVersion())) {
+				return false;
+			}
+			// ordered by name, the old entry must go before the name changes
+			sellersByName.remove(current);
+			unindex(current);
+		}
+		Department dep = obj.getDepartment();
+		if (dep != null) {
+			// sellers read from the file only carry the department id, those are never resolved
+			Department shared = departments.get(dep.getId());
+			if (shared != null) {
+				obj.setDepartment(shared);
+			} else if (dep.getName() != null) {
+				obj.setDepartment(identityMap.resolve(dep));
+			}
+			sellersByDepartment.computeIfAbsent(dep.getId(), key -> new HashSet<>()).add(obj.getId());
+		}
+		sellers.put(obj.getId(), obj);
+		sellersByName.add(obj);
+		return true;
+	}
+
+	private boolean removeSeller(Integer id) {
+		Seller current = sellers.remove(id);
+		if (current != null) {
+			sellersByName.remove(current);
+			unindex(current);
+		}
+		return current != null;
+	}
+
+	private void unindex(Seller obj) {
+		if (obj.getDepartment() != null) {
+			Set<Integer> ids = sellersByDepartment.get(obj.getDepartment().getId());
+			if (ids != null && ids.remove(obj.getId()) && ids.isEmpty()) {
+				sellersByDepartment.remove(obj.getDepartment().getId());
+			}
+		}
+	}
+
+	public List<Department> findAllDepartments() {
+		List<Department> list;
+		lock.readLock().lock();
+		try {
+			list = new ArrayList<>(departments.values());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+		// ORDER BY Name, Id as in DepartmentDao.findAll(), nulls last like PostgreSQL
+		list.sort(Comparator.comparing(Department::getName, Comparator.nullsLast(TextOrder.COMPARATOR))
+				.thenComparing(Department::getId));
+		return Collections.unmodifiableList(list);
+	}
+
+	public Department findDepartment(Integer id) {
+		lock.readLock().lock();
+		try {
+			return departments.get(id);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public List<Seller> findAllSellers() {
+		lock.readLock().lock();
+		try {
+			return Collections.unmodifiableList(new ArrayList<>(sellersByName));
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The page after the given seller in the default order, as
+	 * SellerDao.findPage() returns it.
+	 */
+	public List<Seller> findSellerPage(Seller after, int pageSize) {
+		lock.readLock().lock();
+		try {
+			Collection<Seller> rest = after == null ? sellersByName : sellersByName.tailSet(after, false);
+			List<Seller> page = new ArrayList<>(Math.min(pageSize, rest.size()));
+			for (Seller obj : rest) {
+				if (page.size() == pageSize) {
+					break;
+				}
+				page.add(obj);
+			}
+			return Collections.unmodifiableList(page);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public Seller findSeller(Integer id) {
+		lock.readLock().lock();
+		try {
+			return sellers.get(id);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void load() {
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (InputStream in = Files.newInputStream(file)) {
+			read(new DataInputStream(new BufferedInputStream(in)));
+			ready = true;
+		} catch (IOException | RuntimeException e) {
+			// a damaged or outdated copy is reloaded in full by the first sync
+			QueryMetrics.warning("Local store " + file + " ignored: " + e.getMessage());
+			replace(List.of(), List.of());
+			changeMark = 0;
+		}
+	}
+
+	private void read(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			throw new IOException("not a local store file of version " + FORMAT_VERSION);
+		}
+		long mark = in.readLong();
+		long savedAt = in.readLong();
+		List<Department> newDepartments = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			var obj = new Department(in.readInt(), readString(in));
+			obj.setVersion(readInteger(in));
+			newDepartments.add(obj);
+		}
+		List<Seller> newSellers = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			var obj = new Seller();
+			obj.setId(in.readInt());
+			obj.setName(readString(in));
+			obj.setEmail(readString(in));
+			obj.setBirthDate(in.readBoolean() ? new Date(in.readLong()) : null);
+			obj.setBaseSalary(in.readBoolean() ? in.readDouble() : null);
+			Integer depId = readInteger(in);
+			obj.setDepartment(depId == null ? null : new Department(depId, null));
+			obj.setVersion(readInteger(in));
+			newSellers.add(obj);
+		}
+		replace(newDepartments, newSellers);
+		changeMark = mark;
+		syncedAt = savedAt;
+	}
+
+	/**
+	 * Writes the copy to a temporary file and moves it over the old one, a
+	 * crash halfway leaves the previous copy intact.
+	 */
+	public void save() {
+		synchronized (syncLock) {
+			doSave();
+		}
+	}
+
+	private void doSave() {
+		var bytes = new ByteArrayOutputStream();
+		lock.readLock().lock();
+		try {
+			dirty = false;
+			write(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new DbException("Could not write the local store: " + e.getMessage());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+			try (var out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+				bytes.writeTo(out);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty = true;
+			QueryMetrics.warning("Could not save the local store to " + file + ": " + e.getMessage(), e);
+		}
+	}
+
+	private void write(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(changeMark);
+		out.writeLong(syncedAt);
+		out.writeInt(departments.size());
+		for (Department obj : departments.values()) {
+			out.writeInt(obj.getId());
+			writeString(out, obj.getName());
+			writeInteger(out, obj.getVersion());
+		}
+		out.writeInt(sellers.size());
+		for (Seller obj : sellers.values()) {
+			out.writeInt(obj.getId());
+			writeString(out, obj.getName());
+			writeString(out, obj.getEmail());
+			out.writeBoolean(obj.getBirthDate() != null);
+			if (obj.getBirthDate() != null) {
+				out.writeLong(obj.getBirthDate().getTime());
+			}
+			out.writeBoolean(obj.getBaseSalary() != null);
+			if (obj.getBaseSalary() != null) {
+				out.writeDouble(obj.getBaseSalary());
+			}
+			writeInteger(out, obj.getDepartment() == null ? null : obj.getDepartment().getId());
+			writeInteger(out, obj.getVersion());
+		}
+		out.flush();
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeInt(value);
+		}
+	}
+
+	private static Integer readInteger(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readInt() : null;
+	}
+}
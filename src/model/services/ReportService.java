@@ -0,0 +1,21 @@
+package model.services;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import model.dao.DaoFactory;
+import model.dao.ReportDao;
+import model.entities.DepartmentSummary;
+
+public class ReportService {
+	
+	private ReportDao dao = DaoFactory.createReportDao();
+	
+	public List<DepartmentSummary> findDepartmentSummaries() {
+		return dao.findDepartmentSummaries();
+	}
+	
+	public CompletableFuture<List<DepartmentSummary>> findDepartmentSummariesAsync() {
+		return CompletableFuture.supplyAsync(this::findDepartmentSummaries, ServiceExecutor.get());
+	}
+}
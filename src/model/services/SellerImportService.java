@@ -0,0 +1,426 @@
+package model.services;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import db.DB;
+import db.DbException;
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+import model.exceptions.ValidationException;
+
+/**
+ * Imports sellers from a CSV file with the header
+ * name,email,birthDate,baseSalary,department (birthDate as yyyy-MM-dd,
+ * department by name).
+ * <p>
+ * The file is read in chunks of import.chunkSize rows. Each chunk is parsed
+ * and validated in parallel while the previous one is written in a single
+ * insertAll transaction, so at most two chunks are held in memory. Rejected
+ * rows go to the error report and do not stop the import.
+ */
+public class SellerImportService {
+
+	public static final String HEADER = "name,email,birthDate,baseSalary,department";
+
+	// only the first errors are kept for display, the error report has all of them
+	private static final int MAX_ERRORS_KEPT = 1000;
+
+	private SellerDao dao = DaoFactory.createSellerDao();
+
+	private DepartmentService departmentService = new DepartmentService();
+
+	public Report importFile(Path file, Writer errorReport, Consumer<Report> progress) throws IOException {
+		var state = new Report(Files.size(file));
+		Map<String, Department> departments = departmentsByName();
+		int chunkSize = DB.getIntProperty("import.chunkSize", 5000);
+
+		var in = new CountingInputStream(Files.newInputStream(file));
+		// a decoder of its own reports malformed input, as Files.newBufferedReader does
+		try (var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()))) {
+			var csv = new CsvReader(reader);
+			CsvRecord header = csv.next();
+			if (header == null) {
+				return state;
+			}
+			String first = header.fields.get(0).replace("\uFEFF", "").trim();
+			if (header.fields.size() != 5 || !first.equalsIgnoreCase("name")) {
+				throw new IOException("Expected the header " + HEADER);
+			}
+			if (errorReport != null) {
+				errorReport.write("line,error\n");
+			}
+
+			CompletableFuture<List<ParsedRow>> parsing = null;
+			while (true) {
+				List<CsvRecord> chunk = csv.next(chunkSize);
+				// ahead of the parsed rows by at most the reader's buffer
+				state.bytesRead = in.count;
+				state.rowsRead += chunk.size();
+
+				var previous = parsing;
+				parsing = chunk.isEmpty() ? null : CompletableFuture.supplyAsync(() -> chunk.parallelStream()
+						.map(record -> parse(record, departments))
+						.collect(Collectors.toList()));
+
+				if (previous != null) {
+					write(previous.join(), state, errorReport);
+					if (progress != null) {
+						progress.accept(state.snapshot());
+					}
+				}
+				if (parsing == null) {
+					break;
+				}
+			}
+		}
+		finally {
+			if (state.rowsImported > 0) {
+				SellerService.invalidateCache();
+				// too many rows to write through one by one, the delta sync picks them up
+				LocalStore store = LocalStore.get();
+				if (store != null) {
+					store.requestSync();
+				}
+			}
+		}
+		state.bytesRead = state.totalBytes;
+		var result = state.snapshot();
+		if (progress != null) {
+			progress.accept(result);
+		}
+		return result;
+	}
+
+	public CompletableFuture<Report> importFileAsync(Path file, Writer errorReport, Consumer<Report> progress) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return importFile(file, errorReport, progress);
+			} catch (IOException e) {
+				throw new DbException(e);
+			}
+		}, ServiceExecutor.get());
+	}
+
+	private Map<String, Department> departmentsByName() {
+		Map<String, Department> map = new HashMap<>();
+		for (Department dep : departmentService.findAll()) {
+			map.put(dep.getName().trim().toLowerCase(Locale.ROOT), dep);
+		}
+		return map;
+	}
+
+	private static ParsedRow parse(CsvRecord record, Map<String, Department> departments) {
+		var row = new ParsedRow(record.line);
+		List<String> fields = record.fields;
+		if (fields.size() != 5) {
+			row.error = "Expected 5 fields, found " + fields.size();
+			return row;
+		}
+
+		var obj = new Seller();
+		obj.setName(fields.get(0).trim());
+		obj.setEmail(fields.get(1).trim());
+		Map<String, String> errors = new TreeMap<>();
+		try {
+			obj.setBirthDate(Date.valueOf(LocalDate.parse(fields.get(2).trim())));
+		} catch (DateTimeParseException e) {
+			if (!fields.get(2).isBlank()) {
+				errors.put("birthDate", "Not a yyyy-MM-dd date");
+			}
+		}
+		try {
+			obj.setBaseSalary(Double.parseDouble(fields.get(3).trim()));
+		} catch (NumberFormatException e) {
+			if (!fields.get(3).isBlank()) {
+				errors.put("baseSalary", "Not a number");
+			}
+		}
+		obj.setDepartment(departments.get(fields.get(4).trim().toLowerCase(Locale.ROOT)));
+		if (obj.getDepartment() == null) {
+			errors.put("department", "Unknown department '" + fields.get(4).trim() + "'");
+		}
+
+		try {
+			SellerValidator.validate(obj);
+		} catch (ValidationException e) {
+			// a field that failed to parse is also reported empty by the validator
+			e.getErrors().forEach(errors::putIfAbsent);
+		}
+
+		if (errors.isEmpty()) {
+			row.seller = obj;
+		} else {
+			row.error = errors.entrySet().stream()
+					.map(error -> error.getKey() + ": " + error.getValue())
+					.collect(Collectors.joining("; "));
+		}
+		return row;
+	}
+
+	private void write(List<ParsedRow> rows, Report state, Writer errorReport) throws IOException {
+		List<Seller> sellers = new ArrayList<>(rows.size());
+		for (ParsedRow row : rows) {
+			if (row.seller != null) {
+				sellers.add(row.seller);
+			} else {
+				addError(state, errorReport, row.line, row.error);
+			}
+		}
+		try {
+			dao.insertAll(sellers);
+			state.rowsImported += sellers.size();
+		} catch (DbException e) {
+			// the chunk is one transaction and none of it was written, retry row by row to find the culprits
+			for (ParsedRow row : rows) {
+				if (row.seller == null) {
+					continue;
+				}
+				try {
+					dao.insert(row.seller);
+					state.rowsImported++;
+				} catch (DbException rowException) {
+					addError(state, errorReport, row.line, "Database error: " + rowException.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void addError(Report state, Writer errorReport, long line, String message) throws IOException {
+		state.rowsFailed++;
+		if (state.errors.size() < MAX_ERRORS_KEPT) {
+			state.errors.add(new RowError(line, message));
+		}
+		if (errorReport != null) {
+			errorReport.write(line + "," + CsvReader.quote(message) + "\n");
+		}
+	}
+
+	public static class Report {
+		private final long totalBytes;
+		private long bytesRead;
+		private long rowsRead;
+		private long rowsImported;
+		private long rowsFailed;
+		private final List<RowError> errors;
+
+		private Report(long totalBytes) {
+			this.totalBytes = totalBytes;
+			this.errors = new ArrayList<>();
+		}
+
+		private Report(Report other) {
+			this.totalBytes = other.totalBytes;
+			this.bytesRead = other.bytesRead;
+			this.rowsRead = other.rowsRead;
+			this.rowsImported = other.rowsImported;
+			this.rowsFailed = other.rowsFailed;
+			this.errors = Collections.unmodifiableList(new ArrayList<>(other.errors));
+		}
+
+		private Report snapshot() {
+			return new Report(this);
+		}
+
+		public double getProgress() {
+			return totalBytes == 0 ? 1.0 : Math.min(1.0, (double) bytesRead / totalBytes);
+		}
+
+		public long getRowsRead() {
+			return rowsRead;
+		}
+
+		public long getRowsImported() {
+			return rowsImported;
+		}
+
+		public long getRowsFailed() {
+			return rowsFailed;
+		}
+
+		public List<RowError> getErrors() {
+			return errors;
+		}
+	}
+
+	public static class RowError {
+		private final long line;
+		private final String message;
+
+		private RowError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return "line " + line + ": " + message;
+		}
+	}
+
+	private static class ParsedRow {
+		private final long line;
+		private Seller seller;
+		private String error;
+
+		private ParsedRow(long line) {
+			this.line = line;
+		}
+	}
+
+	private static class CsvRecord {
+		private final long line;
+		private final List<String> fields;
+
+		private CsvRecord(long line, List<String> fields) {
+			this.line = line;
+			this.fields = fields;
+		}
+	}
+
+	// counts the bytes the reader takes from the file, progress is measured against its size in bytes
+	private static class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	/**
+	 * RFC 4180 records: quoted fields may contain commas, doubled quotes and
+	 * line breaks.
+	 */
+	private static class CsvReader {
+		private final BufferedReader reader;
+		private long line;
+
+		private CsvReader(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		private List<CsvRecord> next(int max) throws IOException {
+			List<CsvRecord> records = new ArrayList<>(max);
+			CsvRecord record;
+			while (records.size() < max && (record = next()) != null) {
+				records.add(record);
+			}
+			return records;
+		}
+
+		private CsvRecord next() throws IOException {
+			String text;
+			do {
+				text = reader.readLine();
+				if (text == null) {
+					return null;
+				}
+				line++;
+			} while (text.isBlank());
+
+			long start = line;
+			List<String> fields = new ArrayList<>(5);
+			var field = new StringBuilder();
+			boolean quoted = false;
+			int i = 0;
+			while (true) {
+				if (i == text.length()) {
+					if (!quoted) {
+						break;
+					}
+					String more = reader.readLine();
+					if (more == null) {
+						break;
+					}
+					line++;
+					field.append('\n');
+					text = more;
+					i = 0;
+					continue;
+				}
+				char c = text.charAt(i++);
+				if (quoted) {
+					if (c == '"' && i < text.length() && text.charAt(i) == '"') {
+						field.append('"');
+						i++;
+					} else if (c == '"') {
+						quoted = false;
+					} else {
+						field.append(c);
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else {
+					field.append(c);
+				}
+			}
+			fields.add(field.toString());
+			return new CsvRecord(start, fields);
+		}
+
+		private static String quote(String value) {
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+				return value;
+			}
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+	}
+}
@@ -1,17 +1,125 @@
 package model.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import db.DB;
+import db.DbConflictException;
+import db.QueryCancel;
+import db.TransactionManager;
 import model.dao.DaoFactory;
 import model.dao.SellerDao;
+import model.dao.SellerFilter;
+import model.dao.SellerSort;
 import model.entities.Seller;
 
 public class SellerService {
 	
+	// shared by every service instance, the views create a new service each time they open
+	private static final EntityCache<Integer, Seller> byId = new EntityCache<>(
+			DB.getIntProperty("cache.maxSize", 1000), DB.getIntProperty("cache.ttl", 60000));
+	
+	private static final EntityCache<String, List<Seller>> lists = new EntityCache<>(
+			DB.getIntProperty("cache.maxLists", 100), DB.getIntProperty("cache.ttl", 60000));
+	
 	private SellerDao dao = DaoFactory.createSellerDao();
 	
+	private TransactionManager transactions = DB.getTransactionManager();
+	
 	public List<Seller> findAll() {
-		return dao.findAll();
+		LocalStore store = readStore();
+		if (store != null) {
+			return store.findAllSellers();
+		}
+		return lists.get("all", key -> Collections.unmodifiableList(dao.findAll()));
+	}
+	
+	public List<Seller> findPage(Seller after, int pageSize) {
+		LocalStore store = readStore();
+		if (store != null) {
+			return store.findSellerPage(after, pageSize);
+		}
+		String key = after == null ? "page::" + pageSize : "page:" + after.getName() + ":" + after.getId() + ":" + pageSize;
+		return lists.get(key, k -> Collections.unmodifiableList(dao.findPage(after, pageSize)));
+	}
+	
+	public List<Seller> search(SellerFilter filter, SellerSort sort, Seller after, int pageSize) {
+		return search(filter, sort, after, pageSize, null);
+	}
+	
+	private List<Seller> search(SellerFilter filter, SellerSort sort, Seller after, int pageSize, QueryCancel cancel) {
+		if ((filter == null || filter.isEmpty()) && (sort == null || sort.equals(SellerSort.DEFAULT))) {
+			return findPage(after, pageSize);
+		}
+		if (cancel != null && cancel.isCancelled()) {
+			// superseded while queued, no need for a connection
+			throw new CancellationException();
+		}
+		return dao.search(filter, sort == null ? SellerSort.DEFAULT : sort, after, pageSize, cancel);
+	}
+	
+	/**
+	 * Cancelling the returned future cancels the query on the database too,
+	 * a superseded search does not hold a connection until it completes.
+	 */
+	public CompletableFuture<List<Seller>> searchAsync(SellerFilter filter, SellerSort sort, Seller after, int pageSize) {
+		var cancel = new QueryCancel();
+		CompletableFuture<List<Seller>> future = CompletableFuture.supplyAsync(
+				() -> search(filter, sort, after, pageSize, cancel), ServiceExecutor.get());
+		future.whenComplete((list, e) -> {
+			if (future.isCancelled()) {
+				cancel.cancel();
+			}
+		});
+		return future;
+	}
+	
+	public Seller findById(Integer id) {
+		LocalStore store = readStore();
+		// a seller added by another client since the last sync is read from the database
+		Seller obj = store == null ? null : store.findSeller(id);
+		if (obj != null) {
+			return obj;
+		}
+		return byId.get(id, dao::findById);
+	}
+	
+	/**
+	 * The sellers with the given ids that still exist, those not in the local
+	 * store read in one query.
+	 */
+	public List<Seller> findByIds(Collection<Integer> ids) {
+		LocalStore store = readStore();
+		List<Seller> found = new ArrayList<>();
+		List<Integer> missing = new ArrayList<>();
+		for (Integer id : ids) {
+			Seller obj = store == null ? null : store.findSeller(id);
+			if (obj != null) {
+				found.add(obj);
+			} else {
+				missing.add(id);
+			}
+		}
+		found.addAll(dao.findByIds(missing));
+		return found;
+	}
+	
+	public CompletableFuture<List<Seller>> findAllAsync() {
+		return CompletableFuture.supplyAsync(this::findAll, ServiceExecutor.get());
+	}
+	
+	public CompletableFuture<List<Seller>> findPageAsync(Seller after, int pageSize) {
+		return CompletableFuture.supplyAsync(() -> findPage(after, pageSize), ServiceExecutor.get());
+	}
+	
+	public Stream<Seller> streamAll() {
+		return dao.streamAll();
 	}
 	
 	public void saveOrUpdate(Seller obj) {
@@ -19,12 +127,128 @@ public class SellerService {
 			dao.insert(obj);
 			
 		} else {
-			dao.update(obj);
+			try {
+				dao.update(obj);
+			}
+			catch (DbConflictException e) {
+				// the cached copy is the stale one
+				byId.invalidate(obj.getId());
+				throw e;
+			}
 			
 		}
+		invalidate(obj.getId());
+		writeThrough(store -> store.put(obj));
+	}
+	
+	/**
+	 * Reads the current row, bypassing the cache. Returns null if it was
+	 * deleted.
+	 */
+	public Seller refresh(Integer id) {
+		byId.invalidate(id);
+		// a transaction reads from the primary, a replica may not have the change yet
+		return transactions.inTransaction(() -> findById(id));
+	}
+	
+	public CompletableFuture<Seller> refreshAsync(Integer id) {
+		return CompletableFuture.supplyAsync(() -> refresh(id), ServiceExecutor.get());
+	}
+	
+	/**
+	 * Inserts the new sellers and updates the others in one transaction.
+	 */
+	public void saveOrUpdateAll(Collection<Seller> list) {
+		List<Seller> inserts = new ArrayList<>();
+		List<Seller> updates = new ArrayList<>();
+		for (Seller obj : list) {
+			(obj.getId() == null ? inserts : updates).add(obj);
+		}
+		try {
+			transactions.inTransaction(() -> {
+				dao.insertAll(inserts);
+				dao.updateAll(updates);
+			});
+			writeThrough(store -> list.forEach(store::put));
+		}
+		catch (RuntimeException e) {
+			// rolled back, the generated ids were never committed
+			inserts.forEach(obj -> obj.setId(null));
+			throw e;
+		}
+		finally {
+			transactions.afterCompletion(committed -> invalidateCache());
+		}
 	}
 	
 	public void remove(Seller obj) {
 		dao.deleteById(obj.getId());
+		invalidate(obj.getId());
+		writeThrough(store -> store.removeSeller(obj));
+	}
+	
+	public CompletableFuture<Seller> saveOrUpdateAsync(Seller obj) {
+		return CompletableFuture.supplyAsync(() -> {
+			saveOrUpdate(obj);
+			return obj;
+		}, ServiceExecutor.get());
+	}
+	
+	public CompletableFuture<List<Seller>> saveOrUpdateAllAsync(List<Seller> list) {
+		return CompletableFuture.supplyAsync(() -> {
+			saveOrUpdateAll(list);
+			return list;
+		}, ServiceExecutor.get());
+	}
+	
+	public CompletableFuture<Seller> removeAsync(Seller obj) {
+		return CompletableFuture.supplyAsync(() -> {
+			remove(obj);
+			return obj;
+		}, ServiceExecutor.get());
+	}
+	
+	private void invalidate(Integer id) {
+		byId.invalidate(id);
+		lists.invalidateAll();
+		// rows read inside a transaction may have been cached before it rolled back
+		transactions.afterCompletion(committed -> {
+			if (!committed) {
+				invalidateCache();
+			}
+		});
+	}
+	
+	// inside a transaction reads must see its own writes, the store only has committed rows
+	private LocalStore readStore() {
+		return LocalStore.isReady() && !transactions.isActive() ? LocalStore.get() : null;
+	}
+	
+	private void writeThrough(Consumer<LocalStore> write) {
+		transactions.afterCompletion(committed -> {
+			LocalStore store = LocalStore.get();
+			if (committed && store != null) {
+				write.accept(store);
+			}
+		});
+	}
+	
+	public static EntityCache.Stats getCacheStats() {
+		return byId.getStats();
+	}
+	
+	public static EntityCache.Stats getListCacheStats() {
+		return lists.getStats();
+	}
+	
+	static void invalidateCache() {
+		byId.invalidateAll();
+		lists.invalidateAll();
+	}
+	
+	// a row changed by another client, any cached page may include it
+	static void invalidateCache(Integer id) {
+		byId.invalidate(id);
+		lists.invalidateAll();
 	}
 }
@@ -0,0 +1,45 @@
+package model.services;
+
+import model.entities.Seller;
+import model.exceptions.ValidationException;
+
+/**
+ * Field rules for a seller, shared by the seller form and the CSV import.
+ */
+public class SellerValidator {
+
+	public static final int NAME_MAX_LENGTH = 128;
+	public static final int EMAIL_MAX_LENGTH = 64;
+
+	public static void validate(Seller obj) {
+		var exception = new ValidationException("Validation error");
+
+		if (isBlank(obj.getName())) {
+			exception.addError("name", "Field can't be empty");
+		} else if (obj.getName().length() > NAME_MAX_LENGTH) {
+			exception.addError("name", "At most " + NAME_MAX_LENGTH + " characters");
+		}
+
+		if (isBlank(obj.getEmail())) {
+			exception.addError("email", "Field can't be empty");
+		} else if (obj.getEmail().length() > EMAIL_MAX_LENGTH) {
+			exception.addError("email", "At most " + EMAIL_MAX_LENGTH + " characters");
+		}
+
+		if (obj.getBirthDate() == null) {
+			exception.addError("birthDate", "Field can't be empty");
+		}
+
+		if (obj.getBaseSalary() == null) {
+			exception.addError("baseSalary", "Field can't be empty");
+		}
+
+		if (exception.getErrors().size() > 0) {
+			throw exception;
+		}
+	}
+
+	private static boolean isBlank(String str) {
+		return str == null || str.trim().equals("");
+	}
+}
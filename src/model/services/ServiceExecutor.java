@@ -0,0 +1,40 @@
+package model.services;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import db.DB;
+
+/**
+ * Bounded pool the async service methods run on, so JDBC calls never block
+ * the JavaFX Application Thread.
+ */
+public class ServiceExecutor {
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private static final ExecutorService executor = createExecutor();
+
+	private static ExecutorService createExecutor() {
+		int threads = DB.getIntProperty("async.threads", 4);
+		var pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				r -> {
+					var thread = new Thread(r, "service-worker-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	public static ExecutorService get() {
+		return executor;
+	}
+
+	public static void shutdown() {
+		executor.shutdownNow();
+	}
+}